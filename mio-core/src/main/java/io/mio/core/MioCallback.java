@@ -32,7 +32,9 @@ public class MioCallback<V> {
      * @return {@link MioCallback}
      */
     public final MioCallback<V> notifyListener() {
-        listener.accept(null);
+        if (listener != null) {
+            listener.accept(null);
+        }
         return this;
     }
 
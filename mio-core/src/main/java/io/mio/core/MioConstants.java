@@ -15,6 +15,27 @@ public class MioConstants {
      */
     public static final byte MAGIC_DATA = 0x76;
 
+    /**
+     * Protocol version 1: magic + version + attachment length + data length
+     */
+    public static final byte PROTOCOL_VERSION_1 = 1;
+    /**
+     * Protocol version 2: magic + version + flag + request id + attachment length + data length
+     */
+    public static final byte PROTOCOL_VERSION_2 = 2;
+    /**
+     * Protocol version 3: the header of version 2 + binary attachments
+     */
+    public static final byte PROTOCOL_VERSION_3 = 3;
+    /**
+     * Protocol version 4: the frame of version 3 + control frames(e.g. going-away, heartbeat)
+     */
+    public static final byte PROTOCOL_VERSION_4 = 4;
+    /**
+     * Protocol version 5: the frame of version 4 + the status(code and error) of the response
+     */
+    public static final byte PROTOCOL_VERSION_5 = 5;
+
     /**
      * Magic length(byte，1 byte)
      */
@@ -23,6 +44,14 @@ public class MioConstants {
      * Version length(byte，1 byte)
      */
     private static final int VERSION_BYTE = 1;
+    /**
+     * Flag length(byte，1 byte, since protocol version 2)
+     */
+    private static final int FLAG_BYTE = 1;
+    /**
+     * Request id length(long，8 byte, since protocol version 2)
+     */
+    private static final int REQUEST_ID_BYTE = 8;
     /**
      * Attachment length(int，4 byte）
      */
@@ -35,7 +64,67 @@ public class MioConstants {
      * Read basic length (read only after reaching)
      */
     public static final int BASE_READ_LENGTH = MAGIC_BYTE + VERSION_BYTE + ATTACHMENT_LENGTH_BYTE + DATA_LENGTH_BYTE;
+    /**
+     * The extra header length of protocol version 2(flag + request id)
+     */
+    public static final int EXTEND_READ_LENGTH = FLAG_BYTE + REQUEST_ID_BYTE;
+
+    /**
+     * Flag bit: the data is compressed
+     */
+    public static final byte FLAG_COMPRESSED = 0x01;
+    /**
+     * Flag high 4 bits: the compress codec id(see {@link io.mio.core.compress.Compress#getId()})
+     */
+    public static final int FLAG_COMPRESS_ID_SHIFT = 4;
+    /**
+     * The max compress codec id
+     */
+    public static final int MAX_COMPRESS_ID = 0x0F;
+    /**
+     * Flag bit: the going-away control frame(no attachment and data), the peer stops sending new requests
+     * to the connection(since protocol version 4)
+     */
+    public static final byte FLAG_GOAWAY = 0x04;
+    /**
+     * Flag bit: the heartbeat control frame(no attachment and data), the client pings and the server answers
+     * (since protocol version 4)
+     */
+    public static final byte FLAG_HEARTBEAT = 0x02;
+    /**
+     * Flag bit: the attachment begins with the status of the not OK message(see {@link io.mio.core.MioMessage#getCode()})
+     * (since protocol version 5)
+     */
+    public static final byte FLAG_STATUS = 0x08;
+    /**
+     * The connection is dead if nothing is read in the heartbeat times
+     */
+    public static final int HEARTBEAT_TIMEOUT_TIMES = 3;
 
+    /**
+     * Service name key
+     */
+    public static final String SERVICE_KEY = "service";
+    /**
+     * Group name key
+     */
+    public static final String GROUP_KEY = "group";
+    /**
+     * Service version key
+     */
+    public static final String VERSION_KEY = "version";
+    /**
+     * Request timeout(ms) key
+     */
+    public static final String TIMEOUT_KEY = "timeout";
+    /**
+     * Request priority key
+     */
+    public static final String PRIORITY_KEY = "priority";
+    /**
+     * Trace id key
+     */
+    public static final String TRACE_ID_KEY = "traceId";
     /**
      * HTTP uri key
      */
@@ -20,6 +20,11 @@ public class MioException extends RuntimeException {
     public static final int FUTURE_LISTENER_NULL = 6;
     public static final int NOT_FOUND_CLIENT = 7;
     public static final int SERVER_REJECTED = 8;
+    public static final int CHANNEL_INACTIVE = 9;
+    public static final int ILLEGAL_ATTACHMENT = 10;
+    public static final int UNKNOWN_COMPRESS = 11;
+    public static final int ACQUIRE_FAILURE = 12;
+    public static final int CHANNEL_UNWRITABLE = 13;
 
     private final int code;
     private final String message;
@@ -3,11 +3,19 @@ package io.mio.core;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * MioFuture
+ * <p>
+ * Tips：
+ * 1.Lock-free: the single volatile state is the listener stack before completion, and the outcome after it.
+ * 2.Completing never takes a lock, and only wakes the threads really blocked in get.
+ * 3.The listener runs in the completing thread, or in the executor given by {@link #addListener(FutureListener, Executor)}.
  *
  * @param <V>
  * @author lry
@@ -15,14 +23,15 @@ import java.util.List;
 @Slf4j
 public class MioFuture<V> {
 
-    private final Object lock = new Object();
-    private volatile FutureState state = FutureState.DOING;
-    private final long createTime = System.currentTimeMillis();
-    private long processTime;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<MioFuture, Object> STATE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(MioFuture.class, Object.class, "state");
 
-    private V result = null;
-    private Throwable cause = null;
-    private List<FutureListener<V>> listeners;
+    /**
+     * null or {@link ListenerNode}: doing, {@link Outcome}: done or cancelled
+     */
+    private volatile Object state;
+    private final long createNanos = System.nanoTime();
 
     /**
      * The success notify
@@ -30,9 +39,7 @@ public class MioFuture<V> {
      * @param result {@link V}
      */
     public void onSuccess(V result) {
-        this.processTime = System.currentTimeMillis() - createTime;
-        this.result = result;
-        done();
+        complete(FutureState.DONE, result, null);
     }
 
     /**
@@ -41,9 +48,7 @@ public class MioFuture<V> {
      * @param cause {@link Throwable}
      */
     public void onFailure(Throwable cause) {
-        this.processTime = System.currentTimeMillis() - createTime;
-        this.cause = cause;
-        done();
+        complete(FutureState.DONE, null, cause);
     }
 
     /**
@@ -59,54 +64,53 @@ public class MioFuture<V> {
     /**
      * The get result or throw {@link Throwable}
      *
-     * @param timeout wait timeout
+     * @param timeout wait timeout(ms) since the future created, cancel the future if timeout
      * @return {@link V}
      * @throws Throwable exception {@link Throwable}
      */
     public V get(long timeout) throws Throwable {
-        synchronized (lock) {
-            if (state != FutureState.DOING) {
-                // the get result or throw throwable
-                return getResultOrThrowable();
-            }
-
-            if (timeout <= 0) {
-                try {
-                    lock.wait();
-                } catch (InterruptedException e) {
-                    cancel(new MioException(MioException.WAIT_INTERRUPTED, "Wait interrupted", e));
-                }
-
-                // the get result or throw throwable
-                return getResultOrThrowable();
-            } else {
-                long waitTime = timeout - (System.currentTimeMillis() - createTime);
-                if (waitTime > 0) {
-                    for (; ; ) {
-                        try {
-                            lock.wait(waitTime);
-                        } catch (InterruptedException ignore) {
-                        }
-
-                        if (state != FutureState.DOING) {
-                            break;
-                        } else {
-                            waitTime = timeout - (System.currentTimeMillis() - createTime);
-                            if (waitTime <= 0) {
-                                break;
-                            }
-                        }
+        if (!isDone()) {
+            final Thread waiter = Thread.currentThread();
+            addListener(future -> LockSupport.unpark(waiter));
+
+            boolean interrupted = false;
+            long deadline = createNanos + TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (!isDone()) {
+                if (timeout <= 0) {
+                    LockSupport.park(this);
+                    if (Thread.interrupted()) {
+                        interrupted = true;
+                        cancel(new MioException(MioException.WAIT_INTERRUPTED, "Wait interrupted"));
+                    }
+                } else {
+                    long waitNanos = deadline - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        cancel(new MioException(MioException.FUTURE_TIMEOUT_CANCEL, "Future timeout cancel"));
+                        break;
                     }
-                }
 
-                if (state == FutureState.DOING) {
-                    timeoutSoCancel();
+                    LockSupport.parkNanos(this, waitNanos);
+                    // keep waiting until timeout, and restore the interrupt status after waiting
+                    interrupted |= Thread.interrupted();
                 }
             }
 
-            // the get result or throw throwable
-            return getResultOrThrowable();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
+
+        // the get result or throw throwable
+        return getResultOrThrowable();
+    }
+
+    /**
+     * Done or cancelled
+     *
+     * @return true if not doing
+     */
+    public boolean isDone() {
+        return state instanceof Outcome;
     }
 
     /**
@@ -115,7 +119,13 @@ public class MioFuture<V> {
      * @return successful return true
      */
     public boolean isSuccess() {
-        return state == FutureState.DONE && (cause == null);
+        Object state = this.state;
+        if (!(state instanceof Outcome)) {
+            return false;
+        }
+
+        Outcome outcome = (Outcome) state;
+        return outcome.state == FutureState.DONE && outcome.cause == null;
     }
 
     /**
@@ -128,48 +138,78 @@ public class MioFuture<V> {
     }
 
     /**
-     * The add listener
+     * The add listener, run in the completing thread
      *
      * @param listener {@link FutureListener}
      */
     public void addListener(FutureListener<V> listener) {
+        addListener(listener, null);
+    }
+
+    /**
+     * The add listener, run in the executor
+     *
+     * @param listener {@link FutureListener}
+     * @param executor {@link Executor}, null is the completing thread
+     */
+    public void addListener(FutureListener<V> listener, Executor executor) {
         if (listener == null) {
             throw new MioException(MioException.FUTURE_LISTENER_NULL, "Future listener is null");
         }
 
-        boolean notifyNow = false;
-        synchronized (lock) {
-            if (state != FutureState.DOING) {
-                notifyNow = true;
-            } else {
-                if (listeners == null) {
-                    listeners = new ArrayList<>();
-                }
-
-                listeners.add(listener);
+        for (; ; ) {
+            Object state = this.state;
+            if (state instanceof Outcome) {
+                notifyListener(listener, executor);
+                return;
             }
-        }
 
-        if (notifyNow) {
-            notifyListener(listener);
+            ListenerNode<V> node = new ListenerNode<>(listener, executor, castNode(state));
+            if (STATE_UPDATER.compareAndSet(this, state, node)) {
+                return;
+            }
         }
     }
 
     /**
-     * The execute done
+     * The view as {@link CompletableFuture}, to compose with {@link java.util.concurrent.CompletionStage}
+     * <p>
+     * Tips: cancel the returned future does not cancel this future.
+     *
+     * @return {@link CompletableFuture}
      */
-    private void done() {
-        synchronized (lock) {
-            if (state != FutureState.DOING) {
-                return;
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<V> toCompletableFuture() {
+        CompletableFuture<V> completableFuture = new CompletableFuture<>();
+        addListener(future -> {
+            Outcome outcome = (Outcome) state;
+            if (outcome.cause == null) {
+                completableFuture.complete((V) outcome.result);
+            } else {
+                completableFuture.completeExceptionally(outcome.cause);
             }
+        });
 
-            state = FutureState.DONE;
-            lock.notifyAll();
-        }
+        return completableFuture;
+    }
 
-        // notify all listeners
-        notifyListeners();
+    /**
+     * The process time(ms) from created to completed, 0 if doing
+     *
+     * @return process time
+     */
+    public long getProcessTime() {
+        return TimeUnit.NANOSECONDS.toMillis(getProcessNanos());
+    }
+
+    /**
+     * The process time(ns) from created to completed, 0 if doing
+     *
+     * @return process time
+     */
+    public long getProcessNanos() {
+        Object state = this.state;
+        return state instanceof Outcome ? ((Outcome) state).processNanos : 0;
     }
 
     /**
@@ -179,48 +219,65 @@ public class MioFuture<V> {
      * @return successful return true
      */
     private boolean cancel(Exception e) {
-        synchronized (lock) {
-            if (state != FutureState.DOING) {
+        return complete(FutureState.CANCELLED, null, e);
+    }
+
+    /**
+     * The execute complete, only the first is effective
+     *
+     * @param futureState {@link FutureState}
+     * @param result      result
+     * @param cause       {@link Throwable}
+     * @return true if completed by this call
+     */
+    private boolean complete(FutureState futureState, V result, Throwable cause) {
+        Outcome outcome = new Outcome(futureState, result, cause, System.nanoTime() - createNanos);
+        for (; ; ) {
+            Object state = this.state;
+            if (state instanceof Outcome) {
                 return false;
             }
 
-            state = FutureState.CANCELLED;
-            cause = e;
-            lock.notifyAll();
+            if (STATE_UPDATER.compareAndSet(this, state, outcome)) {
+                // notify all listeners
+                notifyListeners(castNode(state));
+                return true;
+            }
         }
-
-        // notify all listeners
-        notifyListeners();
-        return true;
     }
 
     /**
-     * The cancel by timeout
+     * The notify all listeners in the order of adding
+     *
+     * @param head the head of listener stack
      */
-    private void timeoutSoCancel() {
-        this.processTime = System.currentTimeMillis() - createTime;
-        synchronized (lock) {
-            if (state != FutureState.DOING) {
-                return;
-            }
-
-            state = FutureState.CANCELLED;
-            cause = new MioException(MioException.FUTURE_TIMEOUT_CANCEL, "Future timeout cancel");
-            lock.notifyAll();
+    private void notifyListeners(ListenerNode<V> head) {
+        ListenerNode<V> reversed = null;
+        for (ListenerNode<V> node = head; node != null; node = node.next) {
+            reversed = new ListenerNode<>(node.listener, node.executor, reversed);
         }
 
-        // notify all listeners
-        notifyListeners();
+        for (ListenerNode<V> node = reversed; node != null; node = node.next) {
+            notifyListener(node.listener, node.executor);
+        }
     }
 
     /**
-     * The notify all listeners
+     * The notify listener
+     *
+     * @param listener {@link FutureListener}
+     * @param executor {@link Executor}, null is the current thread
      */
-    private void notifyListeners() {
-        if (listeners != null) {
-            for (FutureListener<V> listener : listeners) {
-                notifyListener(listener);
-            }
+    private void notifyListener(FutureListener<V> listener, Executor executor) {
+        if (executor == null) {
+            notifyListener(listener);
+            return;
+        }
+
+        try {
+            executor.execute(() -> notifyListener(listener));
+        } catch (Throwable t) {
+            log.error("Execute listener exception", t);
         }
     }
 
@@ -237,22 +294,50 @@ public class MioFuture<V> {
         }
     }
 
-    public long getProcessTime() {
-        return processTime;
-    }
-
     /**
      * The get result or throw throwable
      *
      * @return {@link V}
      * @throws Throwable exception {@link Throwable}
      */
+    @SuppressWarnings("unchecked")
     private V getResultOrThrowable() throws Throwable {
-        if (cause != null) {
-            throw cause;
+        Outcome outcome = (Outcome) state;
+        if (outcome.cause != null) {
+            throw outcome.cause;
         }
 
-        return result;
+        return (V) outcome.result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ListenerNode<V> castNode(Object state) {
+        return (ListenerNode<V>) state;
+    }
+
+    /**
+     * The immutable outcome of future
+     */
+    @AllArgsConstructor
+    private static class Outcome {
+
+        private final FutureState state;
+        private final Object result;
+        private final Throwable cause;
+        private final long processNanos;
+
+    }
+
+    /**
+     * The node of lock-free listener stack
+     */
+    @AllArgsConstructor
+    private static class ListenerNode<V> {
+
+        private final FutureListener<V> listener;
+        private final Executor executor;
+        private final ListenerNode<V> next;
+
     }
 
     /**
@@ -300,4 +385,3 @@ public class MioFuture<V> {
     }
 
 }
-
@@ -84,6 +84,12 @@ public class MioMessage implements Serializable {
     public static final byte BAD_RESPONSE = 52;
 
 
+    /**
+     * The request id
+     * <p>
+     * Tips: 0 means no id, the response matched to the request by the id in multiplexed mode
+     */
+    private long id;
     /**
      * The status code
      */
@@ -108,6 +114,12 @@ public class MioMessage implements Serializable {
      */
     private Object data;
 
+    /**
+     * The connection id of the received message, used to send the message back to the same connection
+     * <p>
+     * Tips: 0 means unknown, then the connection is found by the local and remote address
+     */
+    private transient long connectionId;
     /**
      * The local net socket address
      */
@@ -10,6 +10,17 @@ import java.util.function.Consumer;
  */
 public class MioProcessor<V> {
 
+    /**
+     * The processor never blocks(e.g. pure compute, or completing the context asynchronously)
+     * <p>
+     * Tips: the non-blocking processor runs inline in the IO thread, without handing off to the biz thread pool.
+     *
+     * @return true if non-blocking
+     */
+    public boolean isNonBlocking() {
+        return false;
+    }
+
     /**
      * Asynchronous notification after server success.
      *
@@ -20,6 +31,19 @@ public class MioProcessor<V> {
 
     }
 
+    /**
+     * The notification of the connection writability changed
+     * <p>
+     * Tips: the connection is unwritable when its outbound buffer is above the high water mark(slow consumer),
+     * the server stops reading from it until it becomes writable again.
+     *
+     * @param connectionId connection id, see {@link io.mio.core.MioMessage#getConnectionId()}
+     * @param writable     true if writable
+     */
+    public void onWritabilityChanged(long connectionId, boolean writable) {
+
+    }
+
     /**
      * Asynchronous notification after server/client failure
      *
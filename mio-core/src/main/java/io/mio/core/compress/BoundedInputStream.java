@@ -0,0 +1,67 @@
+package io.mio.core.compress;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The uncompressed input stream, which fails once the data read is out of the max length
+ * <p>
+ * Tips: the stream codec inflates while reading, so the raw length is unknown before, and the data
+ * from the network is stopped here instead of inflating without bound.
+ *
+ * @author lry
+ */
+class BoundedInputStream extends FilterInputStream {
+
+    private final int maxLength;
+    private long count;
+
+    BoundedInputStream(InputStream in, int maxLength) {
+        super(in);
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            count(skipped);
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) throws IOException {
+        count += n;
+        if (count > maxLength) {
+            throw new IOException("Uncompressed data out of max length: " + maxLength);
+        }
+    }
+
+}
@@ -1,17 +1,36 @@
 package io.mio.core.compress;
 
 import io.mio.core.extension.SPI;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * The Data Compress/UnCompress.
  *
  * @author lry
  */
-@SPI("gzip")
+@SPI(value = "gzip", single = true)
 public interface Compress {
 
+    /**
+     * The compress codec id, written in the frame flag to let the peer choose the codec to uncompress.
+     * <p>
+     * Tips: 1~15 is valid and is part of the protocol, 0 means the peer uses its own configured compress.
+     *
+     * @return codec id
+     */
+    default byte getId() {
+        return 0;
+    }
+
     /**
      * The Data compress.
      *
@@ -30,4 +49,104 @@ public interface Compress {
      */
     byte[] uncompress(byte[] data) throws IOException;
 
+    /**
+     * The Data compress stream.
+     * <p>
+     * Tips: override it to compress while writing, without intermediate byte[].
+     * The compressed data is completely written when the returned stream is closed.
+     *
+     * @param outputStream the target {@link OutputStream} of compressed data
+     * @return the {@link OutputStream} to write raw data
+     * @throws IOException exception {@link IOException}
+     */
+    default OutputStream compress(OutputStream outputStream) throws IOException {
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                outputStream.write(compress(toByteArray()));
+                outputStream.close();
+            }
+        };
+    }
+
+    /**
+     * The Data compress stream with the compress level.
+     * <p>
+     * Tips: the codec without level ignores it.
+     *
+     * @param outputStream the target {@link OutputStream} of compressed data
+     * @param level        compress level, negative is the default level of the codec
+     * @return the {@link OutputStream} to write raw data
+     * @throws IOException exception {@link IOException}
+     */
+    default OutputStream compress(OutputStream outputStream, int level) throws IOException {
+        return compress(outputStream);
+    }
+
+    /**
+     * The Data compress buffer.
+     * <p>
+     * Tips: override it to compress the whole buffer by the block api, the stream is used by default.
+     *
+     * @param in    the raw data {@link ByteBuf}, all the readable bytes are compressed
+     * @param out   the target {@link ByteBuf} of compressed data
+     * @param level compress level, negative is the default level of the codec
+     * @throws IOException exception {@link IOException}
+     */
+    default void compress(ByteBuf in, ByteBuf out, int level) throws IOException {
+        try (OutputStream outputStream = compress(new ByteBufOutputStream(out), level)) {
+            in.readBytes(outputStream, in.readableBytes());
+        }
+    }
+
+    /**
+     * The Data uncompress buffer.
+     * <p>
+     * Tips: override it to uncompress the whole buffer by the block api, the stream is used by default.
+     *
+     * @param in    the compressed data {@link ByteBuf}
+     * @param alloc the {@link ByteBufAllocator} of uncompressed data
+     * @return uncompressed {@link InputStream}, the buffer allocated is released when it is closed
+     * @throws IOException exception {@link IOException}
+     */
+    default InputStream uncompress(ByteBuf in, ByteBufAllocator alloc) throws IOException {
+        return uncompress(new ByteBufInputStream(in));
+    }
+
+    /**
+     * The Data uncompress buffer with the max raw data length.
+     * <p>
+     * Tips: override it to reject the data whose raw length is out of limit before allocating, the data comes from
+     * the network and can declare any raw length.
+     *
+     * @param in        the compressed data {@link ByteBuf}
+     * @param alloc     the {@link ByteBufAllocator} of uncompressed data
+     * @param maxLength the max raw data length
+     * @return uncompressed {@link InputStream}, the buffer allocated is released when it is closed
+     * @throws IOException exception {@link IOException}
+     */
+    default InputStream uncompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        return uncompress(in, alloc);
+    }
+
+    /**
+     * The Data uncompress stream.
+     * <p>
+     * Tips: override it to uncompress while reading, without intermediate byte[].
+     *
+     * @param inputStream compressed {@link InputStream}
+     * @return uncompressed {@link InputStream}
+     * @throws IOException exception {@link IOException}
+     */
+    default InputStream uncompress(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int n;
+        byte[] buffer = new byte[2048];
+        while ((n = inputStream.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+
+        return new ByteArrayInputStream(uncompress(out.toByteArray()));
+    }
+
 }
@@ -1,26 +1,68 @@
 package io.mio.core.compress;
 
 import io.mio.core.extension.Extension;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 /**
  * The Data Compression Based on gzip.
+ * <p>
+ * Tips：
+ * 1.The {@link Deflater}/{@link Inflater}(native zlib state) and crc are reused per thread and reset between
+ * streams, instead of allocated by every GZIPOutputStream/GZIPInputStream, the deflate itself is done by
+ * {@link DeflaterOutputStream}/{@link InflaterInputStream}, only the gzip header and trailer are handled here.
+ * 2.A thread which opens another stream before closing the previous one gets a temporary codec.
+ * 3.The format is the same as {@link java.util.zip.GZIPOutputStream}, so it is compatible with the old version.
  *
  * @author lry
  */
 @Extension("gzip")
 public class GzipCompress implements Compress {
 
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private static final FastThreadLocal<GzipCodec> CODECS = new FastThreadLocal<GzipCodec>() {
+        @Override
+        protected GzipCodec initialValue() {
+            return new GzipCodec(true);
+        }
+
+        @Override
+        protected void onRemoval(GzipCodec codec) {
+            codec.end();
+        }
+    };
+
+    @Override
+    public byte getId() {
+        return 1;
+    }
+
     @Override
     public byte[] compress(byte[] data) throws IOException {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-                gzip.write(data);
+            try (OutputStream outputStream = compress(out)) {
+                outputStream.write(data);
             }
 
             return out.toByteArray();
@@ -30,18 +72,258 @@ public class GzipCompress implements Compress {
     @Override
     public byte[] uncompress(byte[] data) throws IOException {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
-            try (ByteArrayInputStream in = new ByteArrayInputStream(data)) {
-                try (GZIPInputStream inputStream = new GZIPInputStream(in)) {
-                    int n;
-                    byte[] buffer = new byte[2048];
-                    while ((n = inputStream.read(buffer)) >= 0) {
-                        out.write(buffer, 0, n);
-                    }
-
-                    return out.toByteArray();
+            try (InputStream inputStream = uncompress(new ByteArrayInputStream(data))) {
+                int n;
+                byte[] buffer = new byte[2048];
+                while ((n = inputStream.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+
+                return out.toByteArray();
+            }
+        }
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream) throws IOException {
+        return compress(outputStream, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream, int level) throws IOException {
+        GzipCodec codec = acquire();
+        codec.deflater.setLevel(level < 0 ? Deflater.DEFAULT_COMPRESSION : Math.min(level, Deflater.BEST_COMPRESSION));
+        return new GzipOutputStream(outputStream, codec);
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        return new BoundedInputStream(uncompress(in, alloc), maxLength);
+    }
+
+    @Override
+    public InputStream uncompress(InputStream inputStream) throws IOException {
+        return new GzipInputStream(inputStream, acquire());
+    }
+
+    private static GzipCodec acquire() {
+        GzipCodec codec = CODECS.get();
+        if (codec.inUse) {
+            return new GzipCodec(false);
+        }
+
+        codec.inUse = true;
+        return codec;
+    }
+
+    /**
+     * The reusable zlib state of a thread
+     */
+    private static class GzipCodec {
+
+        private final boolean pooled;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final Inflater inflater = new Inflater(true);
+        private final CRC32 crc = new CRC32();
+        private boolean inUse;
+
+        GzipCodec(boolean pooled) {
+            this.pooled = pooled;
+        }
+
+        void release() {
+            if (pooled) {
+                deflater.reset();
+                inflater.reset();
+                crc.reset();
+                inUse = false;
+            } else {
+                end();
+            }
+        }
+
+        void end() {
+            deflater.end();
+            inflater.end();
+        }
+
+    }
+
+    /**
+     * The gzip output stream on the pooled {@link Deflater}, the same as {@link java.util.zip.GZIPOutputStream}
+     */
+    private static class GzipOutputStream extends DeflaterOutputStream {
+
+        private final GzipCodec codec;
+        private boolean closed;
+
+        GzipOutputStream(OutputStream out, GzipCodec codec) throws IOException {
+            super(out, codec.deflater, BUFFER_SIZE);
+            this.codec = codec;
+            out.write(HEADER);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            codec.crc.update(b, off, len);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!def.finished()) {
+                super.finish();
+                // trailer: crc32 + input size(little endian)
+                writeIntLE((int) codec.crc.getValue());
+                writeIntLE((int) def.getBytesRead());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                codec.release();
+            }
+        }
+
+        private void writeIntLE(int value) throws IOException {
+            out.write(value);
+            out.write(value >> 8);
+            out.write(value >> 16);
+            out.write(value >> 24);
+        }
+
+    }
+
+    /**
+     * The gzip input stream on the pooled {@link Inflater}, the same as {@link java.util.zip.GZIPInputStream}
+     * of a single member
+     */
+    private static class GzipInputStream extends InflaterInputStream {
+
+        private final GzipCodec codec;
+        private boolean eof;
+        private boolean closed;
+
+        GzipInputStream(InputStream in, GzipCodec codec) throws IOException {
+            super(in, codec.inflater, BUFFER_SIZE);
+            this.codec = codec;
+            try {
+                readHeader();
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (eof) {
+                return -1;
+            }
+
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                if (inf.needsDictionary()) {
+                    throw new ZipException("Unsupported gzip dictionary");
                 }
+
+                readTrailer();
+                eof = true;
+            } else {
+                codec.crc.update(b, off, n);
+            }
+
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                codec.release();
+            }
+        }
+
+        private void readHeader() throws IOException {
+            if (readUShort() != GZIP_MAGIC) {
+                throw new ZipException("Not in gzip format");
+            }
+            if (readUByte() != Deflater.DEFLATED) {
+                throw new ZipException("Unsupported gzip compression method");
+            }
+
+            int flag = readUByte();
+            // mtime(4) + xfl(1) + os(1)
+            skipBytes(6);
+            if ((flag & FEXTRA) == FEXTRA) {
+                skipBytes(readUShort());
+            }
+            if ((flag & FNAME) == FNAME) {
+                skipString();
+            }
+            if ((flag & FCOMMENT) == FCOMMENT) {
+                skipString();
+            }
+            if ((flag & FHCRC) == FHCRC) {
+                skipBytes(2);
             }
         }
+
+        private void readTrailer() throws IOException {
+            // the trailer may be partly in the remaining input of the inflater
+            int remaining = inf.getRemaining();
+            long trailer = 0;
+            for (int i = 0; i < 8; i++) {
+                long b = remaining > 0 ? buf[len - remaining--] & 0xFF : readUByte();
+                trailer |= b << (i << 3);
+            }
+
+            // crc32 + input size(little endian)
+            if ((trailer & 0xFFFFFFFFL) != codec.crc.getValue() ||
+                    trailer >>> 32 != (inf.getBytesWritten() & 0xFFFFFFFFL)) {
+                throw new ZipException("Corrupt gzip trailer");
+            }
+        }
+
+        private int readUByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of gzip input stream");
+            }
+
+            return b;
+        }
+
+        private int readUShort() throws IOException {
+            return readUByte() | readUByte() << 8;
+        }
+
+        private void skipBytes(int n) throws IOException {
+            for (int i = 0; i < n; i++) {
+                readUByte();
+            }
+        }
+
+        private void skipString() throws IOException {
+            while (readUByte() != 0) {
+                // skip to the terminator
+            }
+        }
+
     }
 
 }
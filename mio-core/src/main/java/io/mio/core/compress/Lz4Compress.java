@@ -0,0 +1,157 @@
+package io.mio.core.compress;
+
+import io.mio.core.extension.Extension;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The Data Compression Based on lz4.
+ * <pre>
+ * [Format]：raw data length(4 byte) + lz4 block(N byte)
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.The whole message is a single lz4 block, so no block buffer and checksum is allocated per message.
+ * 2.The native or unsafe implementation is used if available.
+ * 3.The safe decompressor is used, the data comes from the network and can not be trusted.
+ *
+ * @author lry
+ */
+@Extension("lz4")
+public class Lz4Compress implements Compress {
+
+    private static final int LENGTH_BYTE = 4;
+    /**
+     * The max compress ratio of lz4, to reject the illegal raw length
+     */
+    private static final int MAX_RATIO = 255;
+
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    public Lz4Compress() {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.safeDecompressor();
+    }
+
+    @Override
+    public byte getId() {
+        return 3;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        ByteBuf out = Unpooled.buffer(LENGTH_BYTE + compressor.maxCompressedLength(data.length));
+        try {
+            compress(Unpooled.wrappedBuffer(data), out, -1);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public byte[] uncompress(byte[] data) throws IOException {
+        ByteBuf in = Unpooled.wrappedBuffer(data);
+        ByteBuf out = Unpooled.buffer(readLength(in, Integer.MAX_VALUE));
+        try {
+            uncompress(in, out);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out, int level) throws IOException {
+        int length = in.readableBytes();
+        int maxLength = compressor.maxCompressedLength(length);
+        out.ensureWritable(LENGTH_BYTE + maxLength);
+        out.writeInt(length);
+
+        ByteBuffer source = in.nioBuffer(in.readerIndex(), length);
+        ByteBuffer target = out.nioBuffer(out.writerIndex(), maxLength);
+        int compressedLength = compressor.compress(source, source.position(), length,
+                target, target.position(), maxLength);
+        in.skipBytes(length);
+        out.writerIndex(out.writerIndex() + compressedLength);
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc) throws IOException {
+        return uncompress(in, alloc, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        ByteBuf out = alloc.buffer(readLength(in, maxLength));
+        try {
+            uncompress(in, out);
+            return new ByteBufInputStream(out, true);
+        } catch (IOException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * The read and check the raw data length
+     *
+     * @param in        compressed {@link ByteBuf}
+     * @param maxLength the max raw data length
+     * @return raw data length
+     * @throws IOException exception {@link IOException}
+     */
+    private int readLength(ByteBuf in, int maxLength) throws IOException {
+        if (in.readableBytes() < LENGTH_BYTE) {
+            throw new IOException("Illegal lz4 data, the length is missing");
+        }
+
+        int length = in.getInt(in.readerIndex());
+        if (length < 0 || length > maxLength || (long) length > (long) (in.readableBytes() - LENGTH_BYTE) * MAX_RATIO) {
+            throw new IOException("Illegal lz4 raw data length: " + length);
+        }
+
+        return length;
+    }
+
+    /**
+     * The uncompress the block into the buffer of raw data length
+     *
+     * @param in  compressed {@link ByteBuf}
+     * @param out uncompressed {@link ByteBuf}
+     * @throws IOException exception {@link IOException}
+     */
+    private void uncompress(ByteBuf in, ByteBuf out) throws IOException {
+        int length = in.readInt();
+        out.ensureWritable(length);
+        int compressedLength = in.readableBytes();
+        ByteBuffer source = in.nioBuffer(in.readerIndex(), compressedLength);
+        ByteBuffer target = out.nioBuffer(out.writerIndex(), length);
+        try {
+            int uncompressedLength = decompressor.decompress(source, source.position(), compressedLength,
+                    target, target.position(), length);
+            if (uncompressedLength != length) {
+                throw new IOException("Illegal lz4 data, the raw data length is " + uncompressedLength + ", not " + length);
+            }
+
+            in.skipBytes(compressedLength);
+            out.writerIndex(out.writerIndex() + length);
+        } catch (LZ4Exception e) {
+            throw new IOException("Illegal lz4 data", e);
+        }
+    }
+
+}
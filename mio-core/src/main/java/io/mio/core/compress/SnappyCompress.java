@@ -0,0 +1,148 @@
+package io.mio.core.compress;
+
+import io.mio.core.extension.Extension;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The Data Compression Based on snappy.
+ * <p>
+ * <pre>
+ * [Format]：chunk length(4 byte) + raw snappy chunk(N byte) + ... + chunk length(4 byte) + raw snappy chunk(N byte)
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.The raw snappy format of netty's pure java implementation, much faster than gzip with a lower ratio.
+ * 2.The data is encoded and decoded against {@link ByteBuf} directly, without intermediate byte[].
+ * 3.The raw data is split into the chunks of {@link #MAX_CHUNK_LENGTH}, the offset of netty's snappy
+ * encoder overflows on the larger input(the same as SnappyFrameEncoder).
+ * 4.The raw length of each chunk is checked before decoding, netty's snappy decoder allocates the declared length.
+ *
+ * @author lry
+ */
+@Extension("snappy")
+public class SnappyCompress implements Compress {
+
+    private static final int MAX_CHUNK_LENGTH = Short.MAX_VALUE;
+    private static final int LENGTH_BYTE = 4;
+
+    @Override
+    public byte getId() {
+        return 2;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        ByteBuf out = Unpooled.buffer(maxCompressedLength(data.length));
+        try {
+            compress(Unpooled.wrappedBuffer(data), out, -1);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public byte[] uncompress(byte[] data) throws IOException {
+        ByteBuf out = Unpooled.buffer(data.length << 1);
+        try {
+            uncompress(Unpooled.wrappedBuffer(data), out, Integer.MAX_VALUE);
+            return ByteBufUtil.getBytes(out);
+        } finally {
+            out.release();
+        }
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out, int level) throws IOException {
+        out.ensureWritable(maxCompressedLength(in.readableBytes()));
+        // the snappy instance keeps decoding state, so it is not shared
+        Snappy snappy = new Snappy();
+        while (in.isReadable()) {
+            int length = Math.min(MAX_CHUNK_LENGTH, in.readableBytes());
+            int lengthWriterIndex = out.writerIndex();
+            out.writeInt(0);
+            snappy.encode(in.readSlice(length), out, length);
+            out.setInt(lengthWriterIndex, out.writerIndex() - lengthWriterIndex - LENGTH_BYTE);
+        }
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc) throws IOException {
+        return uncompress(in, alloc, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        ByteBuf out = alloc.buffer((int) Math.min(maxLength, (long) in.readableBytes() << 1));
+        try {
+            uncompress(in, out, maxLength);
+            return new ByteBufInputStream(out, true);
+        } catch (IOException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    /**
+     * The uncompress all the chunks
+     *
+     * @param in        compressed {@link ByteBuf}
+     * @param out       uncompressed {@link ByteBuf}
+     * @param maxLength the max raw data length
+     * @throws IOException exception {@link IOException}
+     */
+    private void uncompress(ByteBuf in, ByteBuf out, int maxLength) throws IOException {
+        Snappy snappy = new Snappy();
+        try {
+            while (in.isReadable()) {
+                int length = in.readableBytes() < LENGTH_BYTE ? -1 : in.readInt();
+                if (length <= 0 || length > in.readableBytes()) {
+                    throw new IOException("Illegal snappy chunk length: " + length);
+                }
+
+                int rawLength = readPreamble(in);
+                if (rawLength < 0 || rawLength > MAX_CHUNK_LENGTH || rawLength > maxLength - out.readableBytes()) {
+                    throw new IOException("Illegal snappy chunk raw length: " + rawLength);
+                }
+
+                snappy.decode(in.readSlice(length), out);
+                snappy.reset();
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Illegal snappy data", e);
+        }
+    }
+
+    /**
+     * The get the raw length of the chunk from its varint preamble, without consuming it
+     *
+     * @param in compressed {@link ByteBuf}
+     * @return raw length, -1 if the preamble is malformed
+     */
+    private static int readPreamble(ByteBuf in) {
+        int length = 0;
+        for (int i = 0; i < Math.min(LENGTH_BYTE, in.readableBytes()); i++) {
+            int b = in.getUnsignedByte(in.readerIndex() + i);
+            length |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return length;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int maxCompressedLength(int length) {
+        int chunks = (length + MAX_CHUNK_LENGTH - 1) / MAX_CHUNK_LENGTH;
+        return chunks * (LENGTH_BYTE + 32) + length + length / 6;
+    }
+
+}
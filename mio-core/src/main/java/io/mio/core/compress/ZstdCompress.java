@@ -0,0 +1,128 @@
+package io.mio.core.compress;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.mio.core.extension.Extension;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The Data Compression Based on zstd.
+ * <p>
+ * Tips：
+ * 1.A trained dictionary greatly improves the ratio of small messages, it is loaded from the classpath
+ * resource {@link #DICTIONARY_RESOURCE} if exists(e.g. trained by 'zstd --train').
+ * 2.Both sides must use the same dictionary.
+ *
+ * @author lry
+ */
+@Slf4j
+@Extension("zstd")
+public class ZstdCompress implements Compress {
+
+    public static final String DICTIONARY_RESOURCE = "META-INF/mio/zstd.dict";
+    private static final int DEFAULT_LEVEL = 3;
+
+    private final int level;
+    private final byte[] dictionary;
+
+    public ZstdCompress() {
+        this(DEFAULT_LEVEL, loadDictionary());
+    }
+
+    public ZstdCompress(int level, byte[] dictionary) {
+        this.level = level;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public byte getId() {
+        return 4;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (OutputStream outputStream = compress(out)) {
+                outputStream.write(data);
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    @Override
+    public byte[] uncompress(byte[] data) throws IOException {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (InputStream inputStream = uncompress(new ByteArrayInputStream(data))) {
+                int n;
+                byte[] buffer = new byte[2048];
+                while ((n = inputStream.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+
+                return out.toByteArray();
+            }
+        }
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream) throws IOException {
+        return compress(outputStream, level);
+    }
+
+    @Override
+    public OutputStream compress(OutputStream outputStream, int level) throws IOException {
+        ZstdOutputStream zstdOutputStream = new ZstdOutputStream(outputStream, level < 0 ? this.level : level);
+        if (dictionary != null) {
+            zstdOutputStream.setDict(dictionary);
+        }
+
+        return zstdOutputStream;
+    }
+
+    @Override
+    public InputStream uncompress(ByteBuf in, ByteBufAllocator alloc, int maxLength) throws IOException {
+        return new BoundedInputStream(uncompress(in, alloc), maxLength);
+    }
+
+    @Override
+    public InputStream uncompress(InputStream inputStream) throws IOException {
+        ZstdInputStream zstdInputStream = new ZstdInputStream(inputStream);
+        if (dictionary != null) {
+            zstdInputStream.setDict(dictionary);
+        }
+
+        return zstdInputStream;
+    }
+
+    private static byte[] loadDictionary() {
+        ClassLoader classLoader = ZstdCompress.class.getClassLoader();
+        try (InputStream inputStream = classLoader.getResourceAsStream(DICTIONARY_RESOURCE)) {
+            if (inputStream == null) {
+                return null;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int n;
+            byte[] buffer = new byte[2048];
+            while ((n = inputStream.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+
+            log.info("Loaded zstd dictionary: {}, {} bytes", DICTIONARY_RESOURCE, out.size());
+            return out.toByteArray();
+        } catch (IOException e) {
+            log.warn("Load zstd dictionary failure", e);
+            return null;
+        }
+    }
+
+}
@@ -52,6 +52,11 @@ public class ExtensionLoader<T> {
         return extensionClasses.get(name);
     }
 
+    public Set<String> getExtensionNames() {
+        this.checkInit();
+        return Collections.unmodifiableSet(extensionClasses.keySet());
+    }
+
     public T getExtension() {
         this.checkInit();
 
@@ -349,6 +354,9 @@ public class ExtensionLoader<T> {
                 } else {
                     map.put(spiName, clz);
                 }
+            } catch (LinkageError e) {
+                // the optional dependency of the extension is absent
+                log.warn(type.getName() + ": Skip spi class {} for {}", className, e.toString());
             } catch (Exception e) {
                 log.error(type.getName() + ": Error load spi class", e);
             }
@@ -3,45 +3,98 @@ package io.mio.core.serialize;
 import com.caucho.hessian.io.Hessian2Input;
 import com.caucho.hessian.io.Hessian2Output;
 import io.mio.core.extension.Extension;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * The Hessian 2 Serialize.
  * <p>
  * The need to serialize the object to achieve java.io.Serializable interface.
+ * <p>
+ * Tips: {@link Hessian2Output}/{@link Hessian2Input}(buffer and class definition cache) are reused per thread,
+ * and reset between messages, so every message is still self-contained.
  *
  * @author lry
  */
 @Extension("hessian2")
 public class Hessian2Serialize implements Serialize {
 
+    private static final FastThreadLocal<Hessian2Output> OUTPUTS = new FastThreadLocal<Hessian2Output>() {
+        @Override
+        protected Hessian2Output initialValue() {
+            return new Hessian2Output();
+        }
+    };
+    private static final FastThreadLocal<Hessian2Input> INPUTS = new FastThreadLocal<Hessian2Input>() {
+        @Override
+        protected Hessian2Input initialValue() {
+            return new Hessian2Input();
+        }
+    };
+
     @Override
     public byte[] serialize(Object object) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        Hessian2Output out = new Hessian2Output(bos);
-        if (object instanceof Object[]) {
-            Object[] objects = (Object[]) object;
-            for (Object obj : objects) {
-                out.writeObject(obj);
+        serialize(object, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream outputStream) throws IOException {
+        Hessian2Output out = OUTPUTS.get();
+        out.init(outputStream);
+        try {
+            if (object instanceof Object[]) {
+                Object[] objects = (Object[]) object;
+                for (Object obj : objects) {
+                    out.writeObject(obj);
+                }
+            } else {
+                out.writeObject(object);
             }
-        } else {
-            out.writeObject(object);
+
+            out.flush();
+        } finally {
+            // drop the stream and the references of this message
+            out.free();
         }
+    }
 
-        out.flush();
-        return bos.toByteArray();
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
+        return deserialize(new ByteArrayInputStream(bytes), clz);
     }
 
     @SuppressWarnings("unchecked")
     @Override
-    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
-        InputStream inputStream = new ByteArrayInputStream(bytes);
-        Hessian2Input input = new Hessian2Input(inputStream);
-        return (T) input.readObject(clz);
+    public <T> T deserialize(InputStream inputStream, Class<T> clz) throws IOException {
+        Hessian2Input input = INPUTS.get();
+        input.init(inputStream);
+        try {
+            return (T) input.readObject(clz);
+        } finally {
+            // drop the stream, the references and the bytes left by the malformed or trailing data of this message
+            input.init(null);
+            resetBuffer(input);
+        }
+    }
+
+    /**
+     * The reset the buffer of input, which throws {@link IllegalStateException} after the reset if bytes are left
+     *
+     * @param input {@link Hessian2Input}
+     */
+    private static void resetBuffer(Hessian2Input input) {
+        try {
+            input.resetBuffer();
+        } catch (IllegalStateException e) {
+            // the buffer has been reset
+        }
     }
 
 }
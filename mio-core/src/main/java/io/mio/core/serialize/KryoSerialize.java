@@ -0,0 +1,215 @@
+package io.mio.core.serialize;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultClassResolver;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import io.mio.core.extension.Extension;
+import io.netty.util.concurrent.FastThreadLocal;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The Kryo Serialize.
+ * <p>
+ * Tips：
+ * 1.{@link Kryo}, {@link Output} and {@link Input} are not thread safe, so they are kept per thread,
+ * and the singleton serialize is safe to share by all the event loops.
+ * 2.The class registered with the same id on both sides by {@link #register(Class, int)} is written as
+ * the id instead of the class name, the id must not be less than {@link #MIN_REGISTRATION_ID}.
+ * 3.Reference tracking(shared and circular references) is off by default, see {@link #setReferences(boolean)}.
+ * 4.The class must be registered by default, the class name chosen by the peer is only loaded if allowed by
+ * {@link #setAllowClassName(boolean)}, and only then the class without no-arg constructor is instantiated by objenesis.
+ *
+ * @author lry
+ */
+@Extension("kryo")
+public class KryoSerialize implements Serialize {
+
+    /**
+     * The min id of user registration, the less is reserved
+     */
+    public static final int MIN_REGISTRATION_ID = 100;
+    private static final int BUFFER_SIZE = 4 * 1024;
+
+    /**
+     * The reserved registrations of common data types, only append to the end of it
+     */
+    private static final Class<?>[] DEFAULT_REGISTRATIONS = {
+            byte[].class, Object[].class, String[].class, ArrayList.class,
+            HashMap.class, LinkedHashMap.class, Collections.emptyList().getClass(), Collections.emptyMap().getClass()
+    };
+    private static final List<Registration> REGISTRATIONS = new CopyOnWriteArrayList<>();
+    private static volatile boolean references = false;
+    private static volatile boolean allowClassName = false;
+
+    private static final FastThreadLocal<KryoHolder> HOLDERS = new FastThreadLocal<KryoHolder>() {
+        @Override
+        protected KryoHolder initialValue() {
+            return new KryoHolder();
+        }
+    };
+
+    /**
+     * The register class with id
+     *
+     * @param type class
+     * @param id   registration id(&gt;={@link #MIN_REGISTRATION_ID})
+     */
+    public static void register(Class<?> type, int id) {
+        if (id < MIN_REGISTRATION_ID) {
+            throw new IllegalArgumentException("The kryo registration id must >= " + MIN_REGISTRATION_ID + ": " + id);
+        }
+        for (Registration registration : REGISTRATIONS) {
+            if (registration.id == id && registration.type != type) {
+                throw new IllegalArgumentException("Duplicate kryo registration id: " + id + ", " + registration.type.getName());
+            }
+        }
+
+        REGISTRATIONS.add(new Registration(type, id));
+    }
+
+    /**
+     * The switch reference tracking, both sides must be the same
+     *
+     * @param references true is tracking the shared and circular references
+     */
+    public static void setReferences(boolean references) {
+        KryoSerialize.references = references;
+    }
+
+    /**
+     * The allow the unregistered class written by the class name or not, false by default
+     *
+     * @param allowClassName true if allowed
+     */
+    public static void setAllowClassName(boolean allowClassName) {
+        KryoSerialize.allowClassName = allowClassName;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serialize(object, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream outputStream) throws IOException {
+        KryoHolder holder = HOLDERS.get().refresh();
+        Output output = holder.output;
+        output.setOutputStream(outputStream);
+        try {
+            holder.kryo.writeClassAndObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
+        return deserialize(new ByteArrayInputStream(bytes), clz);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> clz) throws IOException {
+        KryoHolder holder = HOLDERS.get().refresh();
+        Input input = holder.input;
+        input.setInputStream(inputStream);
+        try {
+            return (T) holder.kryo.readClassAndObject(input);
+        } finally {
+            input.setInputStream(null);
+        }
+    }
+
+    private static class Registration {
+
+        private final Class<?> type;
+        private final int id;
+
+        Registration(Class<?> type, int id) {
+            this.type = type;
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * The kryo and reusable buffers of a thread
+     */
+    private static class KryoHolder {
+
+        private final Kryo kryo = new Kryo(new RegisteredClassResolver(), null);
+        private final Output output = new Output(BUFFER_SIZE, -1);
+        private final Input input = new Input(BUFFER_SIZE);
+        /**
+         * The number of {@link #REGISTRATIONS} registered to the kryo
+         */
+        private int registered;
+
+        KryoHolder() {
+            int id = kryo.getNextRegistrationId();
+            for (Class<?> type : DEFAULT_REGISTRATIONS) {
+                kryo.register(type, id++);
+            }
+        }
+
+        /**
+         * The apply the registrations and settings changed after the kryo is created
+         *
+         * @return this
+         */
+        KryoHolder refresh() {
+            if (kryo.getReferences() != references) {
+                kryo.setReferences(references);
+            }
+            if (kryo.isRegistrationRequired() == allowClassName) {
+                kryo.setRegistrationRequired(!allowClassName);
+                kryo.setInstantiatorStrategy(allowClassName ?
+                        new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()) : new DefaultInstantiatorStrategy());
+            }
+
+            int size = REGISTRATIONS.size();
+            for (; registered < size; registered++) {
+                Registration registration = REGISTRATIONS.get(registered);
+                kryo.register(registration.type, registration.id);
+            }
+
+            return this;
+        }
+
+    }
+
+    /**
+     * The class resolver never loads the class name written by the peer, unless the registration is not required
+     */
+    private static class RegisteredClassResolver extends DefaultClassResolver {
+
+        @Override
+        protected com.esotericsoftware.kryo.Registration readName(Input input) {
+            if (kryo.isRegistrationRequired()) {
+                throw new KryoException("Unregistered kryo class name is not allowed");
+            }
+
+            return super.readName(input);
+        }
+
+    }
+
+}
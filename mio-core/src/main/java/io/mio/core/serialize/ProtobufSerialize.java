@@ -0,0 +1,186 @@
+package io.mio.core.serialize;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import io.mio.core.extension.Extension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Protobuf Serialize.
+ * <p>
+ * The data must be a protobuf {@link MessageLite}(generated by protoc), byte[], String or null:
+ * <pre>
+ * ===================================================================================================================================
+ * [Null]：type(1 byte)
+ * [Bytes/String]：type(1 byte) + length(varint) + data
+ * [Registered Message]：type(1 byte) + type id(varint) + message
+ * [Message]：type(1 byte) + class name length(varint) + class name + message
+ * ===================================================================================================================================
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.Register the message class with the same id on both sides by {@link #register(int, Class)},
+ * then only the id is written instead of the class name.
+ * 2.The message class must be registered by default, the class name chosen by the peer is only loaded
+ * if allowed by {@link #setAllowClassName(boolean)}, and only the {@link MessageLite} class is initialized.
+ *
+ * @author lry
+ */
+@Extension("protobuf")
+public class ProtobufSerialize implements Serialize {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BYTES = 1;
+    private static final byte TYPE_STRING = 2;
+    private static final byte TYPE_REGISTERED = 3;
+    private static final byte TYPE_MESSAGE = 4;
+
+    private static final Map<Integer, Class<? extends MessageLite>> ID_TYPES = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Integer> TYPE_IDS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Parser<?>> PARSERS = new ConcurrentHashMap<>();
+    private static volatile boolean allowClassName = false;
+
+    /**
+     * The register message class with type id
+     *
+     * @param id   type id(&gt;=0)
+     * @param type message class
+     */
+    public static void register(int id, Class<? extends MessageLite> type) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Illegal protobuf type id: " + id);
+        }
+
+        Class<? extends MessageLite> exist = ID_TYPES.putIfAbsent(id, type);
+        if (exist != null && exist != type) {
+            throw new IllegalArgumentException("Duplicate protobuf type id: " + id + ", " + exist.getName());
+        }
+
+        TYPE_IDS.put(type, id);
+    }
+
+    /**
+     * The allow the unregistered message class written by the class name or not, false by default
+     *
+     * @param allowClassName true if allowed
+     */
+    public static void setAllowClassName(boolean allowClassName) {
+        ProtobufSerialize.allowClassName = allowClassName;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        serialize(object, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void serialize(Object object, OutputStream outputStream) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        if (object == null) {
+            out.writeRawByte(TYPE_NULL);
+        } else if (object instanceof byte[]) {
+            out.writeRawByte(TYPE_BYTES);
+            out.writeByteArrayNoTag((byte[]) object);
+        } else if (object instanceof String) {
+            out.writeRawByte(TYPE_STRING);
+            out.writeStringNoTag((String) object);
+        } else if (object instanceof MessageLite) {
+            Integer id = TYPE_IDS.get(object.getClass());
+            if (id == null) {
+                if (!allowClassName) {
+                    throw new IOException("Unregistered protobuf type: " + object.getClass().getName());
+                }
+
+                out.writeRawByte(TYPE_MESSAGE);
+                out.writeStringNoTag(object.getClass().getName());
+            } else {
+                out.writeRawByte(TYPE_REGISTERED);
+                out.writeUInt32NoTag(id);
+            }
+
+            ((MessageLite) object).writeTo(out);
+        } else {
+            throw new IOException("Unsupported protobuf serialize type: " + object.getClass().getName());
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException {
+        return deserialize(new ByteArrayInputStream(bytes), clz);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(InputStream inputStream, Class<T> clz) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(inputStream);
+        byte type = input.readRawByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BYTES:
+                return (T) input.readByteArray();
+            case TYPE_STRING:
+                return (T) input.readString();
+            case TYPE_REGISTERED:
+                int id = input.readUInt32();
+                Class<? extends MessageLite> messageType = ID_TYPES.get(id);
+                if (messageType == null) {
+                    throw new IOException("Unregistered protobuf type id: " + id);
+                }
+
+                return (T) getParser(messageType).parseFrom(input);
+            case TYPE_MESSAGE:
+                String className = input.readString();
+                if (!allowClassName) {
+                    throw new IOException("Unregistered protobuf type: " + className);
+                }
+
+                try {
+                    // load without initializing, the class chosen by the peer is checked first
+                    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                    Class<?> messageClass = Class.forName(className, false,
+                            classLoader == null ? ProtobufSerialize.class.getClassLoader() : classLoader);
+                    return (T) getParser(messageClass).parseFrom(input);
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("Not found protobuf type: " + className, e);
+                }
+            default:
+                throw new IOException("Unknown protobuf serialize type: " + type);
+        }
+    }
+
+    private static Parser<?> getParser(Class<?> messageClass) throws IOException {
+        Parser<?> parser = PARSERS.get(messageClass);
+        if (parser != null) {
+            return parser;
+        }
+        if (!MessageLite.class.isAssignableFrom(messageClass)) {
+            throw new IOException("Not a protobuf message type: " + messageClass.getName());
+        }
+
+        // the message class is initialized here
+        try {
+            MessageLite defaultInstance = (MessageLite) messageClass.getMethod("getDefaultInstance").invoke(null);
+            parser = defaultInstance.getParserForType();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Not found protobuf parser: " + messageClass.getName(), e);
+        }
+
+        PARSERS.put(messageClass, parser);
+        return parser;
+    }
+
+}
@@ -2,7 +2,10 @@ package io.mio.core.serialize;
 
 import io.mio.core.extension.SPI;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * The Data Serialize.
@@ -21,6 +24,19 @@ public interface Serialize {
      */
     byte[] serialize(Object object) throws IOException;
 
+    /**
+     * The serialize object to stream
+     * <p>
+     * Tips: override it to write the stream(e.g. a ByteBufOutputStream) directly without intermediate byte[].
+     *
+     * @param object       object implements java.io.Serializable
+     * @param outputStream {@link OutputStream}
+     * @throws IOException IO exception {@link IOException}
+     */
+    default void serialize(Object object, OutputStream outputStream) throws IOException {
+        outputStream.write(serialize(object));
+    }
+
     /**
      * The deserialize object
      *
@@ -31,4 +47,25 @@ public interface Serialize {
      */
     <T> T deserialize(byte[] bytes, Class<T> clz) throws IOException;
 
+    /**
+     * The deserialize object from stream
+     * <p>
+     * Tips: override it to read the stream(e.g. a ByteBufInputStream) directly without intermediate byte[].
+     *
+     * @param inputStream {@link InputStream}
+     * @param clz         {@link T} class
+     * @return {@link T}
+     * @throws IOException IO exception {@link IOException}
+     */
+    default <T> T deserialize(InputStream inputStream, Class<T> clz) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int n;
+        byte[] buffer = new byte[2048];
+        while ((n = inputStream.read(buffer)) >= 0) {
+            out.write(buffer, 0, n);
+        }
+
+        return deserialize(out.toByteArray(), clz);
+    }
+
 }
@@ -1,5 +1,6 @@
 package io.mio.core.transport;
 
+import io.mio.core.MioConstants;
 import lombok.Data;
 
 import java.io.Serializable;
@@ -37,6 +38,12 @@ public class ClientConfig implements Serializable {
      * The server codec
      */
     private String codec = "mio";
+    /**
+     * The protocol version of mio codec
+     * <p>
+     * Tips: set an older version(e.g. 2) in mixed-version cluster, the peer is answered with its own version
+     */
+    private byte version = MioConstants.PROTOCOL_VERSION_5;
     /**
      * The server header serialize
      */
@@ -49,15 +56,56 @@ public class ClientConfig implements Serializable {
      * The compress data min length(byte, default：10kb)
      */
     private int compressMinLength = 10 * 1024;
+    /**
+     * The compress level, negative is the default level of the codec(e.g. gzip: 0~9, zstd: 1~22)
+     */
+    private int compressLevel = -1;
+    /**
+     * True is adaptive compress: skip compressing the data type whose observed compression ratio stays poor
+     */
+    private boolean adaptiveCompress;
 
+    /**
+     * True is multiplexed mode: many in-flight requests share one connection, matched by request id
+     * <p>
+     * Tips: the server must support protocol version 2, and only this mode batches the messages of
+     * {@link io.mio.core.transport.MioClient#submitAll(java.util.List)} into one flush
+     */
+    private boolean multiplex;
+    /**
+     * The max connections of an address in multiplexed mode, the requests share them instead of opening
+     * a connection for each concurrent request
+     */
+    private int multiplexConnections = 4;
     /**
      * The number of maximal active connections
      */
     private int maxConnections = 20000;
+    /**
+     * The max number of pending acquires when all connections of an address are in use
+     */
+    private int maxPendingAcquires = 10000;
+    /**
+     * The timeout millis(ms) to acquire a connection from the pool
+     */
+    private long acquireTimeoutMillis = 10 * 1000;
+    /**
+     * The default request timeout millis(ms), overridden by the attachment {@link MioConstants#TIMEOUT_KEY}
+     * of message, 0 means never timeout
+     */
+    private long requestTimeoutMillis = 30 * 1000;
     /**
      * Socket max content byte length(byte)
      */
     private int maxContentLength = 10 * 1024 * 1024;
+    /**
+     * The low water mark of the outbound buffer(byte), the channel becomes writable again below it
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+    /**
+     * The high water mark of the outbound buffer(byte), the channel becomes unwritable above it
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
     /**
      * The heartbeat time(ms)
      */
@@ -5,6 +5,8 @@ import io.mio.core.MioFuture;
 import io.mio.core.MioMessage;
 import io.mio.core.extension.SPI;
 
+import java.util.List;
+
 /**
  * MioClient
  *
@@ -38,6 +40,20 @@ public interface MioClient {
      */
     MioFuture<MioMessage> submit(final MioMessage message) throws Throwable;
 
+    /**
+     * The send batch submit
+     * <p>
+     * Tips: the messages to the same remote address are written to one connection and flushed once
+     * in multiplexed mode. In exclusive mode a connection carries one request at a time, so every message
+     * acquires its own connection and is flushed alone, the same as {@link #submit(MioMessage)}.
+     *
+     * @param messages {@link MioMessage} list
+     * @return {@link MioFuture} of the responses in the order of messages, failed if any request failed
+     * @throws Throwable exception {@link Throwable}, {@link IllegalArgumentException} if the remote address of
+     *                   any message is null, and nothing is sent
+     */
+    MioFuture<List<MioMessage>> submitAll(final List<MioMessage> messages) throws Throwable;
+
     /**
      * The send callback
      *
@@ -28,6 +28,43 @@ public interface MioServer {
      */
     void send(final MioMessage message) throws Throwable;
 
+    /**
+     * The broadcast message to all the clients
+     * <p>
+     * Tips: the message is encoded once and shared, and the client whose outbound buffer is full is skipped.
+     *
+     * @param message {@link MioMessage}
+     * @return the number of clients written
+     * @throws Throwable exception {@link Throwable}
+     */
+    int broadcast(final MioMessage message) throws Throwable;
+
+    /**
+     * The multicast message to the clients of the group
+     *
+     * @param group   group name
+     * @param message {@link MioMessage}
+     * @return the number of clients written
+     * @throws Throwable exception {@link Throwable}
+     */
+    int multicast(final String group, final MioMessage message) throws Throwable;
+
+    /**
+     * The client joins the group, and leaves it automatically when closed
+     *
+     * @param group        group name
+     * @param connectionId connection id of the client, see {@link MioMessage#getConnectionId()}
+     */
+    void joinGroup(final String group, final long connectionId);
+
+    /**
+     * The client leaves the group
+     *
+     * @param group        group name
+     * @param connectionId connection id of the client
+     */
+    void leaveGroup(final String group, final long connectionId);
+
     /**
      * The destroy server
      */
@@ -1,8 +1,11 @@
 package io.mio.core.transport;
 
+import io.mio.core.MioConstants;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * ServerConfig
@@ -45,6 +48,12 @@ public class ServerConfig implements Serializable {
      * The server codec
      */
     private String codec = "mio";
+    /**
+     * The protocol version of mio codec
+     * <p>
+     * Tips: set an older version(e.g. 2) in mixed-version cluster, the peer is answered with its own version
+     */
+    private byte version = MioConstants.PROTOCOL_VERSION_5;
     /**
      * The server header serialize
      */
@@ -57,6 +66,14 @@ public class ServerConfig implements Serializable {
      * The compress data min length(byte, default：10kb)
      */
     private int compressMinLength = 10 * 1024;
+    /**
+     * The compress level, negative is the default level of the codec(e.g. gzip: 0~9, zstd: 1~22)
+     */
+    private int compressLevel = -1;
+    /**
+     * True is adaptive compress: skip compressing the data type whose observed compression ratio stays poor
+     */
+    private boolean adaptiveCompress;
 
     /**
      * The server socket backlog size
@@ -74,6 +91,21 @@ public class ServerConfig implements Serializable {
      * Socket max content byte length(byte, default：10MB)
      */
     private int maxContentLength = 10 * 1024 * 1024;
+    /**
+     * The low water mark of the outbound buffer(byte), the channel becomes writable again below it
+     */
+    private int writeBufferLowWaterMark = 32 * 1024;
+    /**
+     * The high water mark of the outbound buffer(byte), the channel becomes unwritable above it
+     */
+    private int writeBufferHighWaterMark = 64 * 1024;
+    /**
+     * The max number of flushes consolidated into one syscall, 0 is disabled
+     * <p>
+     * Tips: the flushes in a read batch or in an event loop turn are consolidated, it reduces the syscalls
+     * of pipelined connection under high load, and the flush is not delayed when the load is low.
+     */
+    private int flushConsolidations = 0;
     /**
      * The heartbeat time(ms)
      */
@@ -83,10 +115,43 @@ public class ServerConfig implements Serializable {
      */
     private int shutdownTimeoutMillis = 10 * 1000;
 
+    /**
+     * True is adaptive limit: the limit of in-flight requests follows the processing latency, the more is rejected
+     */
+    private boolean adaptiveLimit;
+    /**
+     * The min limit of in-flight requests in adaptive limit mode
+     */
+    private int adaptiveMinLimit = 20;
+    /**
+     * The max limit of in-flight requests in adaptive limit mode
+     */
+    private int adaptiveMaxLimit = 1000;
+
     /**
      * True is enable biz thread pool
      */
     private boolean bizThread = true;
+    /**
+     * True is channel affinity: each channel is pinned to one of {@link #bizCoreThreads} single-thread biz executors,
+     * the requests of a channel hop from the IO thread to its executor and are processed in order on the same thread
+     * without the contention on a shared queue, and the blocking biz only stalls the channels of its executor
+     * instead of the IO threads
+     * <p>
+     * Tips: the queue of each executor is bounded by {@link #bizQueueCapacity}, the more is rejected,
+     * {@link #bizMaxThreads} is not used, and the service in {@link #bizIsolations} still runs on its isolated
+     * thread pool.
+     */
+    private boolean bizAffinity;
+    /**
+     * True is run the biz on the virtual thread(thread-per-request, JDK 21+), which is suitable for the blocking biz,
+     * fallback to the biz thread pool if the JDK does not support it
+     */
+    private boolean bizVirtualThread;
+    /**
+     * The biz max concurrency on the virtual thread, the more is rejected
+     */
+    private int bizVirtualMaxConcurrency = 10000;
     /**
      * The biz core thread pool size
      */
@@ -103,5 +168,30 @@ public class ServerConfig implements Serializable {
      * The biz thread pool queue capacity
      */
     private int bizQueueCapacity = bizMaxThreads;
+    /**
+     * The number of priority lanes of the biz thread pool, 0 or 1 is disabled
+     * <p>
+     * Tips: the lane is selected by the priority attachment(0 is the highest) of request, then by {@link #bizPriorities}.
+     */
+    private int bizPriorityLanes = 0;
+    /**
+     * The dequeue weights of priority lanes(from the highest), null is strict priority
+     */
+    private int[] bizPriorityWeights;
+    /**
+     * The priority lane of the request without priority, negative is the middle lane
+     */
+    private int bizPriorityDefault = -1;
+    /**
+     * The priority lane of the service, key is 'service'
+     */
+    private Map<String, Integer> bizPriorities = new HashMap<>();
+    /**
+     * The isolated biz thread pool(bulkhead) of the service, the others share the biz thread pool
+     * <p>
+     * Tips: key is 'group:service' or 'service'(matched by the attachments of request), value is the max threads,
+     * and the max concurrency in virtual thread mode.
+     */
+    private Map<String, Integer> bizIsolations = new HashMap<>();
 
 }
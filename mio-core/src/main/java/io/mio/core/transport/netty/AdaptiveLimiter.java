@@ -0,0 +1,146 @@
+package io.mio.core.transport.netty;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Adaptive Limiter(gradient based)
+ * <p>
+ * The limit of in-flight requests follows the gradient between the long-term rtt(no load) and the rtt just sampled:
+ * <pre>
+ * gradient = max(0.5, min(1.0, tolerance * longRtt / rtt))
+ * limit    = (1 - smoothing) * limit + smoothing * (limit * gradient + sqrt(limit))
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.The limit grows by sqrt(limit) when the rtt keeps stable, and decays when the rtt grows(queueing),
+ * so the request is rejected before the queue builds up instead of after.
+ * 2.The limit is kept while less than half of it is in use(the load is not high enough to probe).
+ * 3.The rejected or failed request is released without sample by {@link Listener#onIgnore()}.
+ * 4.The sample is dropped while another one is being applied, so the response never waits for a lock.
+ *
+ * @author lry
+ */
+public class AdaptiveLimiter {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    private final AtomicBoolean sampling = new AtomicBoolean(false);
+
+    private volatile double limit;
+    private double longRtt;
+    private long samples;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Illegal adaptive limit range: [" + minLimit + ", " + maxLimit + "]");
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * The acquire a permit
+     *
+     * @return {@link Listener}, null is rejected
+     */
+    public Listener acquire() {
+        if (inflight.incrementAndGet() > (int) limit) {
+            inflight.decrementAndGet();
+            return null;
+        }
+
+        return new Listener(System.nanoTime());
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * The update limit by the rtt sample, the sample is dropped if another one is being applied
+     *
+     * @param rttNanos rtt(ns)
+     * @param inflight the in-flight count when sampled
+     */
+    void update(long rttNanos, int inflight) {
+        if (!sampling.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            apply(Math.max(1L, rttNanos), inflight);
+        } finally {
+            sampling.set(false);
+        }
+    }
+
+    private void apply(double rtt, int inflight) {
+        if (samples < LONG_WINDOW) {
+            // warm up with the simple average
+            samples++;
+            longRtt += (rtt - longRtt) / samples;
+        } else {
+            longRtt += (rtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+
+        // the long rtt drifts up under a long high load, pull it back to recover the limit
+        if (longRtt / rtt > 2) {
+            longRtt *= 0.95;
+        }
+        // the load is not high enough to probe, keep the limit
+        double current = limit;
+        if (inflight < current / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * The permit of a request, released only once
+     */
+    public class Listener extends AtomicBoolean {
+
+        private final long startNanos;
+
+        private Listener(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * The release with the rtt sample, when the request is processed
+         */
+        public void onSuccess() {
+            if (compareAndSet(false, true)) {
+                int current = inflight.getAndDecrement();
+                update(System.nanoTime() - startNanos, current);
+            }
+        }
+
+        /**
+         * The release without sample, when the request is rejected or failed
+         */
+        public void onIgnore() {
+            if (compareAndSet(false, true)) {
+                inflight.decrementAndGet();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,241 @@
+package io.mio.core.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Channel Registry
+ * <p>
+ * The channel is registered in a slot of the array, and identified by the numeric connection id:
+ * <pre>
+ * connection id(8 bytes) = generation of slot(4 bytes) + slot index(4 bytes)
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.Lookup is lock-free and allocation-free, the register/unregister(per connection) is synchronized.
+ * 2.The generation grows when the slot is reused, so the id of the closed channel never finds the new channel.
+ * 3.The connection id is stored in {@link #CONNECTION_ID_KEY} attribute of the channel, 0 is unregistered.
+ * 4.The array grows by doubling up to the capacity, the released slot is reused first, so the slots stay dense
+ * and the iteration only scans up to the highest slot ever used.
+ *
+ * @author lry
+ */
+public class ChannelRegistry implements Iterable<Channel> {
+
+    public static final AttributeKey<Long> CONNECTION_ID_KEY = AttributeKey.valueOf("mio.connectionId");
+
+    private static final int INITIAL_SLOTS = 64;
+
+    private final int capacity;
+    /**
+     * The slots, replaced by the larger copy when growing
+     */
+    private volatile Slots slots;
+    /**
+     * The released slot stack
+     */
+    private int[] freeSlots;
+    private int freeCount;
+    /**
+     * The number of slots ever used, the highest slot is used - 1
+     */
+    private volatile int used;
+    private int[] generations;
+    private volatile int size;
+
+    public ChannelRegistry(int capacity) {
+        this.capacity = capacity;
+        int length = Math.min(capacity, INITIAL_SLOTS);
+        this.slots = new Slots(length);
+        this.freeSlots = new int[length];
+        this.generations = new int[length];
+    }
+
+    /**
+     * The register channel
+     *
+     * @param channel {@link Channel}
+     * @return connection id, 0 is full
+     */
+    public long register(Channel channel) {
+        long id;
+        synchronized (this) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else if (used < capacity) {
+                slot = used;
+                if (slot == generations.length) {
+                    grow();
+                }
+
+                used++;
+            } else {
+                return 0;
+            }
+
+            // the generation starts with 1, so the id is never 0
+            int generation = ++generations[slot];
+            if (generation == 0) {
+                generation = ++generations[slot];
+            }
+
+            id = (long) generation << 32 | slot;
+            slots.channels.set(slot, channel);
+            slots.ids.set(slot, id);
+            size++;
+        }
+
+        channel.attr(CONNECTION_ID_KEY).set(id);
+        return id;
+    }
+
+    /**
+     * The unregister channel
+     *
+     * @param channel {@link Channel}
+     * @return true if unregistered by this call
+     */
+    public boolean unregister(Channel channel) {
+        Long id = channel.attr(CONNECTION_ID_KEY).getAndSet(null);
+        if (id == null) {
+            return false;
+        }
+
+        int slot = (int) id.longValue();
+        synchronized (this) {
+            Slots slots = this.slots;
+            if (slot < 0 || slot >= used || slots.ids.get(slot) != id) {
+                return false;
+            }
+
+            slots.ids.set(slot, 0);
+            slots.channels.set(slot, null);
+            freeSlots[freeCount++] = slot;
+            size--;
+        }
+
+        return true;
+    }
+
+    /**
+     * The lookup channel by connection id
+     *
+     * @param id connection id
+     * @return {@link Channel}, null is not found
+     */
+    public Channel get(long id) {
+        Slots slots = this.slots;
+        int slot = (int) id;
+        if (id == 0 || slot < 0 || slot >= slots.ids.length() || slots.ids.get(slot) != id) {
+            return null;
+        }
+
+        Channel channel = slots.channels.get(slot);
+        // confirm the slot is not reused during the lookup
+        return slots.ids.get(slot) == id ? channel : null;
+    }
+
+    /**
+     * The connection id of the channel
+     *
+     * @param channel {@link Channel}
+     * @return connection id, 0 is unregistered
+     */
+    public static long getConnectionId(Channel channel) {
+        Long id = channel.attr(CONNECTION_ID_KEY).get();
+        return id == null ? 0 : id;
+    }
+
+    /**
+     * The iterate all the registered channels, weakly consistent
+     *
+     * @return {@link Iterator}
+     */
+    @Override
+    public Iterator<Channel> iterator() {
+        return new Iterator<Channel>() {
+
+            // the slots are published before the used grows, so they cover the used read ahead
+            private final int used = ChannelRegistry.this.used;
+            private final Slots slots = ChannelRegistry.this.slots;
+            private int index = -1;
+            private Channel next = advance();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Channel next() {
+                Channel channel = next;
+                if (channel == null) {
+                    throw new NoSuchElementException();
+                }
+
+                next = advance();
+                return channel;
+            }
+
+            private Channel advance() {
+                while (++index < used) {
+                    Channel channel = slots.channels.get(index);
+                    if (channel != null) {
+                        return channel;
+                    }
+                }
+
+                return null;
+            }
+
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The grow the slots by doubling up to the capacity, the writers are synchronized
+     */
+    private void grow() {
+        int length = (int) Math.min(capacity, (long) generations.length << 1);
+        Slots oldSlots = slots;
+        Slots newSlots = new Slots(length);
+        for (int i = 0; i < used; i++) {
+            newSlots.channels.set(i, oldSlots.channels.get(i));
+            newSlots.ids.set(i, oldSlots.ids.get(i));
+        }
+
+        freeSlots = Arrays.copyOf(freeSlots, length);
+        generations = Arrays.copyOf(generations, length);
+        slots = newSlots;
+    }
+
+    /**
+     * The channels and the connection ids of the slots
+     */
+    private static class Slots {
+
+        private final AtomicReferenceArray<Channel> channels;
+        private final AtomicLongArray ids;
+
+        Slots(int length) {
+            this.channels = new AtomicReferenceArray<>(length);
+            this.ids = new AtomicLongArray(length);
+        }
+
+    }
+
+}
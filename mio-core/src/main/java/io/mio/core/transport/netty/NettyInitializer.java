@@ -1,8 +1,12 @@
 package io.mio.core.transport.netty;
 
+import io.mio.core.MioMessage;
 import io.mio.core.compress.Compress;
 import io.mio.core.extension.SPI;
 import io.mio.core.serialize.Serialize;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.ServerConfig;
+import io.netty.channel.Channel;
 
 /**
  * NettyInitializer
@@ -15,21 +19,66 @@ public interface NettyInitializer {
     /**
      * Netty server initializer
      *
-     * @param maxContentLength max content length
+     * @param serverConfig     {@link ServerConfig}
      * @param serialize        {@link Serialize}
      * @param compress         {@link Compress}
      * @param attachment       object attachment
      */
-    void server(int maxContentLength, Serialize serialize, Compress compress, Object attachment);
+    void server(ServerConfig serverConfig, Serialize serialize, Compress compress, Object attachment);
 
     /**
      * Netty client initializer
      *
-     * @param maxContentLength max content length
+     * @param clientConfig     {@link ClientConfig}
      * @param serialize        {@link Serialize}
      * @param compress         {@link Compress}
      * @param attachment       object attachment
      */
-    void client(int maxContentLength, Serialize serialize, Compress compress, Object attachment);
+    void client(ClientConfig clientConfig, Serialize serialize, Compress compress, Object attachment);
+
+    /**
+     * Netty server tells the channel it is going away(draining), nothing by default
+     *
+     * @param channel {@link Channel}
+     */
+    default void goAway(Channel channel) {
+
+    }
+
+    /**
+     * Netty writes the heartbeat frame to the channel, nothing by default
+     *
+     * @param channel {@link Channel}
+     * @return false if the heartbeat is not supported by the codec or the peer
+     */
+    default boolean heartbeat(Channel channel) {
+        return false;
+    }
+
+    /**
+     * Netty server broadcast the message to the channels
+     * <p>
+     * Tips: the unwritable channel(slow consumer) is skipped, and the message is encoded by every channel by default.
+     *
+     * @param serverConfig {@link ServerConfig}
+     * @param serialize    {@link Serialize}
+     * @param compress     {@link Compress}
+     * @param channels     the channels to write
+     * @param message      {@link MioMessage}
+     * @return the number of channels written
+     * @throws Exception exception {@link Exception}
+     */
+    default int broadcast(ServerConfig serverConfig, Serialize serialize, Compress compress,
+                          Iterable<Channel> channels, MioMessage message) throws Exception {
+        int count = 0;
+        for (Channel channel : channels) {
+            if (channel.isActive() && channel.isWritable()) {
+                channel.writeAndFlush(message, channel.voidPromise());
+                count++;
+            }
+        }
+
+        return count;
+    }
 
 }
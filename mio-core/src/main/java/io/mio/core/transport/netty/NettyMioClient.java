@@ -2,6 +2,7 @@ package io.mio.core.transport.netty;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.mio.core.MioCallback;
+import io.mio.core.MioConstants;
 import io.mio.core.MioException;
 import io.mio.core.MioFuture;
 import io.mio.core.MioMessage;
@@ -17,11 +18,13 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.pool.AbstractChannelPoolHandler;
 import io.netty.channel.pool.AbstractChannelPoolMap;
+import io.netty.channel.pool.ChannelHealthChecker;
 import io.netty.channel.pool.FixedChannelPool;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -29,11 +32,22 @@ import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.AttributeKey;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.Future;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * NettyMioClient
@@ -44,6 +58,12 @@ import java.util.concurrent.TimeUnit;
 @Extension("netty")
 public class NettyMioClient implements MioClient {
 
+    /**
+     * The request timeout timer shared by all clients
+     */
+    private static final Timer TIMER = new HashedWheelTimer(new ThreadFactoryBuilder()
+            .setNameFormat("mio-client-timer").setDaemon(true).build(), 10, TimeUnit.MILLISECONDS);
+
     private final AttributeKey<MioCallback<MioMessage>> callbackKey = AttributeKey.valueOf("MIO_CALLBACK");
 
     private ClientConfig clientConfig;
@@ -56,8 +76,8 @@ public class NettyMioClient implements MioClient {
     @Override
     public void initialize(final ClientConfig clientConfig) {
         this.clientConfig = clientConfig;
-        this.clientHandler = new NettyMioClientHandler(callbackKey);
         this.initializer = ExtensionLoader.getLoader(NettyInitializer.class).getExtension(clientConfig.getCodec());
+        this.clientHandler = new NettyMioClientHandler(callbackKey, initializer);
 
         // create socket channel type and thread group
         Class<? extends SocketChannel> channelClass;
@@ -83,9 +103,12 @@ public class NettyMioClient implements MioClient {
                     .option(ChannelOption.SO_KEEPALIVE, true)
                     .option(ChannelOption.TCP_NODELAY, true)
                     .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, clientConfig.getConnectTimeoutMillis())
-                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+                    .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    // the outbound buffer water mark of backpressure
+                    .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            clientConfig.getWriteBufferLowWaterMark(), clientConfig.getWriteBufferHighWaterMark()));
 
-            // create fixed channel pool
+            // create fixed channel pool, a few shared connections of an address in multiplexed mode
             this.channelPools = new AbstractChannelPoolMap<InetSocketAddress, FixedChannelPool>() {
                 @Override
                 protected FixedChannelPool newPool(InetSocketAddress key) {
@@ -98,17 +121,22 @@ public class NettyMioClient implements MioClient {
 
                         @Override
                         public void channelCreated(Channel ch) throws Exception {
-                            // client initializer
-                            initializer.client(clientConfig.getMaxContentLength(), serialize, compress, ch.pipeline());
-                            // heartbeat detection
+                            // heartbeat detection: ping on writer idle, and close the connection not answered,
+                            // before the codec to see the control frames which are not decoded as messages
                             if (clientConfig.getHeartbeat() > 0) {
-                                ch.pipeline().addLast(new IdleStateHandler(0, 0,
-                                        clientConfig.getHeartbeat(), TimeUnit.MILLISECONDS));
+                                ch.pipeline().addLast(new IdleStateHandler((long) clientConfig.getHeartbeat() *
+                                        MioConstants.HEARTBEAT_TIMEOUT_TIMES, clientConfig.getHeartbeat(), 0,
+                                        TimeUnit.MILLISECONDS));
                             }
+                            // client initializer
+                            initializer.client(clientConfig, serialize, compress, ch.pipeline());
                             // process network IO
                             ch.pipeline().addLast(clientHandler);
                         }
-                    }, clientConfig.getMaxConnections());
+                    }, ChannelHealthChecker.ACTIVE, FixedChannelPool.AcquireTimeoutAction.FAIL,
+                            clientConfig.getAcquireTimeoutMillis(), clientConfig.isMultiplex() ?
+                            clientConfig.getMultiplexConnections() : clientConfig.getMaxConnections(),
+                            clientConfig.getMaxPendingAcquires());
                 }
             };
 
@@ -144,27 +172,301 @@ public class NettyMioClient implements MioClient {
         return mioFuture;
     }
 
+    @Override
+    public MioFuture<List<MioMessage>> submitAll(final List<MioMessage> messages) throws Throwable {
+        final MioFuture<List<MioMessage>> mioFuture = new MioFuture<>();
+        if (messages.isEmpty()) {
+            mioFuture.onSuccess(new ArrayList<>());
+            return mioFuture;
+        }
+        // validate all the messages before any deadline is scheduled
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i).getRemoteAddress() == null) {
+                throw new IllegalArgumentException("The remote address of message is null: index=" + i);
+            }
+        }
+
+        // combine the responses in the order of messages, fail at the first failure
+        final MioMessage[] responses = new MioMessage[messages.size()];
+        final AtomicInteger remaining = new AtomicInteger(messages.size());
+        final Map<InetSocketAddress, List<MioMessage>> groupMessages = new LinkedHashMap<>();
+        final Map<InetSocketAddress, List<DeadlineCallback>> groupCallbacks = new LinkedHashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            final int index = i;
+            MioMessage message = messages.get(i);
+            DeadlineCallback deadlineCallback = deadline(message, new MioCallback<MioMessage>() {
+                @Override
+                public void onSuccess(MioMessage response) {
+                    responses[index] = response;
+                    if (remaining.decrementAndGet() == 0) {
+                        mioFuture.onSuccess(Arrays.asList(responses));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    mioFuture.onFailure(t);
+                }
+            });
+
+            groupMessages.computeIfAbsent(message.getRemoteAddress(), k -> new ArrayList<>()).add(message);
+            groupCallbacks.computeIfAbsent(message.getRemoteAddress(), k -> new ArrayList<>()).add(deadlineCallback);
+        }
+
+        for (Map.Entry<InetSocketAddress, List<MioMessage>> entry : groupMessages.entrySet()) {
+            List<DeadlineCallback> deadlineCallbacks = groupCallbacks.get(entry.getKey());
+            if (clientConfig.isMultiplex()) {
+                batch(entry.getKey(), entry.getValue(), deadlineCallbacks);
+            } else {
+                // the exclusive connection carries one request at a time, so every message is flushed alone
+                for (int i = 0; i < entry.getValue().size(); i++) {
+                    send(entry.getValue().get(i), deadlineCallbacks.get(i));
+                }
+            }
+        }
+
+        return mioFuture;
+    }
+
     @Override
     public void callback(final MioMessage message, final MioCallback<MioMessage> callback) throws Throwable {
         log.debug("The callback request: {}", message);
+        send(message, deadline(message, callback));
+    }
+
+    /**
+     * The wrap callback with the request deadline
+     *
+     * @param message  {@link MioMessage}
+     * @param callback {@link MioCallback}
+     * @return {@link DeadlineCallback}
+     */
+    private DeadlineCallback deadline(MioMessage message, MioCallback<MioMessage> callback) {
+        final DeadlineCallback deadlineCallback = new DeadlineCallback(callback);
+        final long timeoutMillis = getTimeoutMillis(message);
+        if (timeoutMillis > 0) {
+            deadlineCallback.timeout = TIMER.newTimeout(t -> deadlineCallback.onTimeout(timeoutMillis),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return deadlineCallback;
+    }
+
+    /**
+     * The send batch messages to one connection of the remote address, and flush once in multiplexed mode
+     *
+     * @param remoteAddress     remote address
+     * @param messages          {@link MioMessage} list
+     * @param deadlineCallbacks {@link DeadlineCallback} list
+     */
+    private void batch(InetSocketAddress remoteAddress, List<MioMessage> messages, List<DeadlineCallback> deadlineCallbacks) {
+        final FixedChannelPool channelPool = channelPools.get(remoteAddress);
+        channelPool.acquire().addListener((Future<Channel> future) -> {
+            if (!future.isSuccess()) {
+                for (DeadlineCallback deadlineCallback : deadlineCallbacks) {
+                    deadlineCallback.onFailure(new MioException(MioException.ACQUIRE_FAILURE,
+                            "Acquire channel failure", remoteAddress, future.cause()));
+                }
+                return;
+            }
+
+            Channel channel = future.getNow();
+            if (clientHandler.isGoingAway(channel)) {
+                // retry on another channel
+                retire(channelPool, channel);
+                batch(remoteAddress, messages, deadlineCallbacks);
+                return;
+            }
+            if (!channel.isWritable()) {
+                channelPool.release(channel);
+                for (DeadlineCallback deadlineCallback : deadlineCallbacks) {
+                    deadlineCallback.onFailure(unwritable(channel));
+                }
+                return;
+            }
+
+            try {
+                for (int i = 0; i < messages.size(); i++) {
+                    if (!deadlineCallbacks.get(i).completed.get()) {
+                        write(channel, messages.get(i), deadlineCallbacks.get(i));
+                    }
+                }
+
+                channel.flush();
+            } finally {
+                // return channel to pool
+                channelPool.release(channel);
+            }
+        });
+    }
+
+    /**
+     * The send message
+     *
+     * @param message          {@link MioMessage}
+     * @param deadlineCallback {@link DeadlineCallback}
+     */
+    private void send(MioMessage message, DeadlineCallback deadlineCallback) {
         final FixedChannelPool channelPool = channelPools.get(message.getRemoteAddress());
-        final Channel channel = channelPool.acquire().get();
-        if (channel == null) {
-            throw new MioException(MioException.CHANNEL_NULL, "Acquire get channel null");
+        // acquire without blocking, the pool exhausted or acquire timeout is reported by the callback
+        channelPool.acquire().addListener((Future<Channel> future) -> {
+            if (!future.isSuccess()) {
+                deadlineCallback.onFailure(new MioException(MioException.ACQUIRE_FAILURE,
+                        "Acquire channel failure", message.getRemoteAddress(), future.cause()));
+                return;
+            }
+
+            Channel channel = future.getNow();
+            if (clientHandler.isGoingAway(channel)) {
+                // retry on another channel
+                retire(channelPool, channel);
+                send(message, deadlineCallback);
+            } else if (deadlineCallback.completed.get()) {
+                // timeout before acquired
+                channelPool.release(channel);
+            } else if (clientConfig.isMultiplex()) {
+                multiplex(channelPool, channel, message, deadlineCallback);
+            } else {
+                exclusive(channelPool, channel, message, deadlineCallback);
+            }
+        });
+    }
+
+    /**
+     * The retire the going-away channel: hold it out of pool until closed, so that it is not acquired again
+     *
+     * @param channelPool {@link FixedChannelPool}
+     * @param channel     {@link Channel}
+     */
+    private void retire(FixedChannelPool channelPool, Channel channel) {
+        channel.closeFuture().addListener(future -> channelPool.release(channel));
+        if (clientHandler.isIdle(channel)) {
+            channel.close();
         }
+    }
 
+    /**
+     * The send in exclusive mode
+     * <p>
+     * The channel is held by the request, and returned to pool after the response arrives or failure.
+     * The timeout channel is closed, because its late response can not be matched to the next request.
+     *
+     * @param channelPool      {@link FixedChannelPool}
+     * @param channel          {@link Channel}
+     * @param message          {@link MioMessage}
+     * @param deadlineCallback {@link DeadlineCallback}
+     */
+    private void exclusive(FixedChannelPool channelPool, Channel channel,
+                           MioMessage message, DeadlineCallback deadlineCallback) {
         try {
             message.wrapper(channel.localAddress(), channel.remoteAddress());
-            channel.attr(callbackKey).set(callback.listener(t -> channelPool.release(channel)));
+            channel.attr(callbackKey).set(deadlineCallback.listener(t -> channelPool.release(channel)));
+            deadlineCallback.reclaim(() -> {
+                if (channel.attr(callbackKey).compareAndSet(deadlineCallback, null)) {
+                    channel.close();
+                    channelPool.release(channel);
+                }
+            });
             // write and flush
-            channel.writeAndFlush(message);
+            channel.writeAndFlush(message).addListener(future -> {
+                if (!future.isSuccess()) {
+                    failExclusive(channel, future.cause());
+                }
+            });
         } catch (Exception e) {
+            failExclusive(channel, e);
+        }
+    }
+
+    /**
+     * The fail the callback of channel in exclusive mode, and return channel to pool
+     *
+     * @param channel {@link Channel}
+     * @param cause   {@link Throwable}
+     */
+    private void failExclusive(Channel channel, Throwable cause) {
+        MioCallback<MioMessage> callback = channel.attr(callbackKey).getAndSet(null);
+        if (callback != null) {
+            callback.notifyListener().onFailure(cause);
+        }
+    }
+
+    /**
+     * The send in multiplexed mode
+     * <p>
+     * The callback is registered into the in-flight table by request id, and the channel is returned
+     * to pool at once after writing, so that it can carry other requests before the response arrives.
+     *
+     * @param channelPool      {@link FixedChannelPool}
+     * @param channel          {@link Channel}
+     * @param message          {@link MioMessage}
+     * @param deadlineCallback {@link DeadlineCallback}
+     */
+    private void multiplex(FixedChannelPool channelPool, Channel channel,
+                           MioMessage message, DeadlineCallback deadlineCallback) {
+        try {
+            // fail fast instead of queueing on the slow server
+            if (!channel.isWritable()) {
+                deadlineCallback.onFailure(unwritable(channel));
+                return;
+            }
+
+            write(channel, message, deadlineCallback);
+            channel.flush();
+        } finally {
             // return channel to pool
             channelPool.release(channel);
-            throw e;
         }
     }
 
+    private static MioException unwritable(Channel channel) {
+        return new MioException(MioException.CHANNEL_UNWRITABLE,
+                "The channel outbound buffer is full", channel.remoteAddress());
+    }
+
+    /**
+     * The register in-flight request and write it without flush in multiplexed mode
+     *
+     * @param channel          {@link Channel}
+     * @param message          {@link MioMessage}
+     * @param deadlineCallback {@link DeadlineCallback}
+     */
+    private void write(Channel channel, MioMessage message, DeadlineCallback deadlineCallback) {
+        message.wrapper(channel.localAddress(), channel.remoteAddress());
+        final long id = clientHandler.addInflight(channel, deadlineCallback);
+        message.setId(id);
+        deadlineCallback.reclaim(() -> clientHandler.removeInflight(channel, id));
+        channel.write(message).addListener(future -> {
+            if (!future.isSuccess()) {
+                MioCallback<MioMessage> inflight = clientHandler.removeInflight(channel, id);
+                if (inflight != null) {
+                    inflight.onFailure(future.cause());
+                }
+            }
+        });
+    }
+
+    /**
+     * The get request timeout millis: the attachment of message, or the default of config
+     *
+     * @param message {@link MioMessage}
+     * @return timeout millis, 0 means never timeout
+     */
+    private long getTimeoutMillis(MioMessage message) {
+        Object timeout = message.getAttachments().get(MioConstants.TIMEOUT_KEY);
+        if (timeout instanceof Number) {
+            return ((Number) timeout).longValue();
+        } else if (timeout != null) {
+            try {
+                return Long.parseLong(String.valueOf(timeout));
+            } catch (NumberFormatException e) {
+                log.warn("Illegal request timeout attachment: {}", timeout);
+            }
+        }
+
+        return clientConfig.getRequestTimeoutMillis();
+    }
+
     @Override
     public void destroy() {
         // close channel pool
@@ -187,4 +489,77 @@ public class NettyMioClient implements MioClient {
         }
     }
 
+    /**
+     * The callback completed only once, by the response, the failure or the timeout
+     *
+     * @author lry
+     */
+    private static class DeadlineCallback extends MioCallback<MioMessage> {
+
+        private final MioCallback<MioMessage> callback;
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+        private volatile Timeout timeout;
+        /**
+         * Remove the request from the channel when timeout
+         */
+        private volatile Runnable reclaim;
+
+        DeadlineCallback(MioCallback<MioMessage> callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(MioMessage response) {
+            if (complete()) {
+                callback.onSuccess(response);
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            if (complete()) {
+                callback.onFailure(t);
+            }
+        }
+
+        /**
+         * The set reclaim, run it at once if already timeout
+         *
+         * @param reclaim reclaim the request of channel
+         */
+        void reclaim(Runnable reclaim) {
+            this.reclaim = reclaim;
+            if (completed.get()) {
+                reclaim.run();
+            }
+        }
+
+        void onTimeout(long timeoutMillis) {
+            if (!complete()) {
+                return;
+            }
+
+            Runnable reclaim = this.reclaim;
+            if (reclaim != null) {
+                reclaim.run();
+            }
+
+            callback.onSuccess(new MioMessage(MioMessage.CLIENT_TIMEOUT, "Request timeout: " + timeoutMillis + "ms"));
+        }
+
+        private boolean complete() {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+
+            Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+
+            return true;
+        }
+
+    }
+
 }
@@ -2,21 +2,33 @@ package io.mio.core.transport.netty;
 
 import io.mio.core.MioConstants;
 import io.mio.core.MioCallback;
+import io.mio.core.MioException;
 import io.mio.core.MioMessage;
+import io.mio.core.transport.netty.mio.NettyMioControl;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.AttributeKey;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * NettyMioClientHandler
  * <p>
  * Tips：
  * 1.Used to read the information sent by the client
  * 2.ChannelRead0() of SimpleChannelInboundHandler does not need to care about releasing ByteBuf
+ * 3.In multiplexed mode, the response is matched back to its callback by request id
+ * 4.The going-away channel is closed when its last response arrives
+ * 5.Ping on writer idle, and close the channel whose ping is not answered on reader idle
  *
  * @author lry
  */
@@ -25,7 +37,86 @@ import lombok.extern.slf4j.Slf4j;
 @ChannelHandler.Sharable
 public class NettyMioClientHandler extends SimpleChannelInboundHandler<MioMessage> {
 
+    /**
+     * The in-flight table of channel in multiplexed mode: request id -> callback
+     */
+    private final AttributeKey<ConcurrentMap<Long, MioCallback<MioMessage>>> inflightKey = AttributeKey.valueOf("MIO_INFLIGHT");
+    /**
+     * The request id generator in multiplexed mode
+     */
+    private final AtomicLong idGenerator = new AtomicLong(0);
+
+    /**
+     * The going-away mark of channel, the server is draining
+     */
+    private final AttributeKey<Boolean> goAwayKey = AttributeKey.valueOf("MIO_GOAWAY");
+
+    /**
+     * The heartbeat mark of channel, the ping is sent and nothing is read since then
+     */
+    private final AttributeKey<Boolean> heartbeatKey = AttributeKey.valueOf("MIO_HEARTBEAT");
+
     private final AttributeKey<MioCallback<MioMessage>> mioCallbackKey;
+    private final NettyInitializer initializer;
+
+    /**
+     * The check the server of channel is going away, so no new request should be sent to it
+     *
+     * @param channel {@link Channel}
+     * @return true if going away
+     */
+    public boolean isGoingAway(Channel channel) {
+        return Boolean.TRUE.equals(channel.attr(goAwayKey).get());
+    }
+
+    /**
+     * The check the channel has no request waiting for response
+     *
+     * @param channel {@link Channel}
+     * @return true if idle
+     */
+    public boolean isIdle(Channel channel) {
+        if (channel.attr(mioCallbackKey).get() != null) {
+            return false;
+        }
+
+        ConcurrentMap<Long, MioCallback<MioMessage>> inflights = channel.attr(inflightKey).get();
+        return inflights == null || inflights.isEmpty();
+    }
+
+    /**
+     * The register in-flight request in multiplexed mode
+     *
+     * @param channel  {@link Channel}
+     * @param callback {@link MioCallback}
+     * @return request id
+     */
+    public long addInflight(Channel channel, MioCallback<MioMessage> callback) {
+        ConcurrentMap<Long, MioCallback<MioMessage>> inflights = channel.attr(inflightKey).get();
+        if (inflights == null) {
+            ConcurrentMap<Long, MioCallback<MioMessage>> newInflights = new ConcurrentHashMap<>();
+            inflights = channel.attr(inflightKey).setIfAbsent(newInflights);
+            if (inflights == null) {
+                inflights = newInflights;
+            }
+        }
+
+        long id = idGenerator.incrementAndGet();
+        inflights.put(id, callback);
+        return id;
+    }
+
+    /**
+     * The remove in-flight request in multiplexed mode
+     *
+     * @param channel {@link Channel}
+     * @param id      request id
+     * @return {@link MioCallback}, null if not found
+     */
+    public MioCallback<MioMessage> removeInflight(Channel channel, long id) {
+        ConcurrentMap<Long, MioCallback<MioMessage>> inflights = channel.attr(inflightKey).get();
+        return inflights == null ? null : inflights.remove(id);
+    }
 
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
@@ -37,8 +128,67 @@ public class NettyMioClientHandler extends SimpleChannelInboundHandler<MioMessag
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, final MioMessage msg) throws Exception {
         Channel channel = ctx.channel();
-        MioCallback<MioMessage> callback = channel.attr(mioCallbackKey).getAndSet(null);
+        clearHeartbeat(channel);
+        MioCallback<MioMessage> callback = null;
+        if (msg.getId() != 0) {
+            callback = removeInflight(channel, msg.getId());
+        }
+        if (callback == null) {
+            callback = channel.attr(mioCallbackKey).getAndSet(null);
+        }
+        if (callback == null) {
+            log.warn("Client not found callback:{}, request id={}", getChannelKey(channel), msg.getId());
+            return;
+        }
+
         callback.notifyListener().onSuccess(msg);
+        // the last response of the going-away channel
+        if (isGoingAway(channel) && isIdle(channel)) {
+            channel.close();
+        }
+    }
+
+    /**
+     * The clear the heartbeat mark, the connection is alive when anything is read
+     *
+     * @param channel {@link Channel}
+     */
+    private void clearHeartbeat(Channel channel) {
+        if (channel.attr(heartbeatKey).get() != null) {
+            channel.attr(heartbeatKey).set(null);
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        Channel channel = ctx.channel();
+        if (evt instanceof IdleStateEvent) {
+            IdleState state = ((IdleStateEvent) evt).state();
+            if (state == IdleState.WRITER_IDLE) {
+                // ping, and expect the answer of server
+                if (initializer.heartbeat(channel)) {
+                    channel.attr(heartbeatKey).set(Boolean.TRUE);
+                }
+            } else if (state == IdleState.READER_IDLE && Boolean.TRUE.equals(channel.attr(heartbeatKey).get())) {
+                // the ping is not answered, the connection is dead(e.g. half-open)
+                log.warn("Client channel heartbeat timeout, close it:{}", getChannelKey(channel));
+                channel.close();
+            }
+            return;
+        } else if (evt == NettyMioControl.HEARTBEAT) {
+            clearHeartbeat(channel);
+            return;
+        } else if (evt != NettyMioControl.GOAWAY) {
+            super.userEventTriggered(ctx, evt);
+            return;
+        }
+
+        // the in-flight requests are still answered by the draining server
+        channel.attr(goAwayKey).set(Boolean.TRUE);
+        log.info("Client channel going away:{}", getChannelKey(channel));
+        if (isIdle(channel)) {
+            channel.close();
+        }
     }
 
     @Override
@@ -49,7 +199,15 @@ public class NettyMioClientHandler extends SimpleChannelInboundHandler<MioMessag
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        log.debug("Client channel inactive:{}", getChannelKey(ctx.channel()));
+        Channel channel = ctx.channel();
+        log.debug("Client channel inactive:{}", getChannelKey(channel));
+        MioException cause = new MioException(MioException.CHANNEL_INACTIVE, "Channel inactive");
+        // fail at once, so that the exclusive channel is returned to pool and evicted
+        MioCallback<MioMessage> callback = channel.attr(mioCallbackKey).getAndSet(null);
+        if (callback != null) {
+            callback.notifyListener().onFailure(cause);
+        }
+        failInflights(channel, cause);
         super.channelInactive(ctx);
     }
 
@@ -57,7 +215,14 @@ public class NettyMioClientHandler extends SimpleChannelInboundHandler<MioMessag
     public void exceptionCaught(ChannelHandlerContext ctx, final Throwable cause) throws Exception {
         Channel channel = ctx.channel();
         MioCallback<MioMessage> callback = channel.attr(mioCallbackKey).getAndSet(null);
-        callback.notifyListener().onFailure(cause);
+        if (callback != null) {
+            callback.notifyListener().onFailure(cause);
+        }
+
+        // the stream of multiplexed channel can not be trusted any more
+        if (failInflights(channel, cause)) {
+            channel.close();
+        }
     }
 
     @Override
@@ -67,6 +232,29 @@ public class NettyMioClientHandler extends SimpleChannelInboundHandler<MioMessag
         super.channelUnregistered(ctx);
     }
 
+    /**
+     * The fail all in-flight requests of channel
+     *
+     * @param channel {@link Channel}
+     * @param cause   {@link Throwable}
+     * @return true if the channel is a multiplexed channel
+     */
+    private boolean failInflights(Channel channel, Throwable cause) {
+        ConcurrentMap<Long, MioCallback<MioMessage>> inflights = channel.attr(inflightKey).get();
+        if (inflights == null) {
+            return false;
+        }
+
+        for (Map.Entry<Long, MioCallback<MioMessage>> entry : inflights.entrySet()) {
+            MioCallback<MioMessage> callback = inflights.remove(entry.getKey());
+            if (callback != null) {
+                callback.onFailure(cause);
+            }
+        }
+
+        return true;
+    }
+
     /**
      * The get channel key
      * <p>
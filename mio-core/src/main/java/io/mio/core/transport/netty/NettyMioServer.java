@@ -13,23 +13,30 @@ import io.mio.core.transport.MioServer;
 import io.mio.core.transport.ServerConfig;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * NettyMioServer
@@ -47,7 +54,16 @@ public class NettyMioServer implements MioServer {
     private Channel serverChannel;
     private NettyMioServerHandler serverHandler;
     private NettyInitializer initializer;
+    private Serialize serialize;
+    private Compress compress;
+    /**
+     * The channel groups of multicast
+     */
+    private final ConcurrentMap<String, ChannelGroup> groups = new ConcurrentHashMap<>();
 
+    private final AtomicBoolean destroyed = new AtomicBoolean(false);
+
+    private static final long DRAIN_CHECK_INTERVAL_MILLIS = 10;
     private static boolean IS_LINUX_PLATFORM = false;
 
     static {
@@ -62,8 +78,8 @@ public class NettyMioServer implements MioServer {
     @Override
     public void initialize(final ServerConfig serverConfig, final MioProcessor<MioMessage> processor) {
         this.serverConfig = serverConfig;
-        this.serverHandler = new NettyMioServerHandler(serverConfig, processor);
         this.initializer = ExtensionLoader.getLoader(NettyInitializer.class).getExtension(serverConfig.getCodec());
+        this.serverHandler = new NettyMioServerHandler(serverConfig, processor, initializer);
 
         // create socket channel type and thread group
         Class<? extends ServerChannel> channelClass;
@@ -80,8 +96,8 @@ public class NettyMioServer implements MioServer {
         }
 
         // create serialize and compress
-        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
-        Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(serverConfig.getCompress());
+        this.serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
+        this.compress = ExtensionLoader.getLoader(Compress.class).getExtension(serverConfig.getCompress());
 
         try {
             // create server bootstrap
@@ -96,16 +112,25 @@ public class NettyMioServer implements MioServer {
                     .childOption(ChannelOption.SO_REUSEADDR, true)
                     // Using object pools, reusing buffers
                     .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                    // the outbound buffer water mark of backpressure
+                    .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(
+                            serverConfig.getWriteBufferLowWaterMark(), serverConfig.getWriteBufferHighWaterMark()))
                     .childHandler(new ChannelInitializer<Channel>() {
                         @Override
                         protected void initChannel(Channel ch) throws Exception {
-                            // server initializer
-                            initializer.server(serverConfig.getMaxContentLength(), serialize, compress, ch.pipeline());
-                            // heartbeat detection
+                            // flush consolidation, must be the first to see all the flushes
+                            if (serverConfig.getFlushConsolidations() > 0) {
+                                ch.pipeline().addLast(new FlushConsolidationHandler(
+                                        serverConfig.getFlushConsolidations(), true));
+                            }
+                            // heartbeat detection: close the connection read nothing in the heartbeat times,
+                            // before the codec to see the control frames which are not decoded as messages
                             if (serverConfig.getHeartbeat() > 0) {
-                                ch.pipeline().addLast(new IdleStateHandler(0, 0,
-                                        serverConfig.getHeartbeat(), TimeUnit.MILLISECONDS));
+                                ch.pipeline().addLast(new IdleStateHandler((long) serverConfig.getHeartbeat() *
+                                        MioConstants.HEARTBEAT_TIMEOUT_TIMES, 0, 0, TimeUnit.MILLISECONDS));
                             }
+                            // server initializer
+                            initializer.server(serverConfig, serialize, compress, ch.pipeline());
                             // process network IO
                             ch.pipeline().addLast(serverHandler);
                         }
@@ -133,40 +158,136 @@ public class NettyMioServer implements MioServer {
 
     @Override
     public void send(MioMessage message) throws Throwable {
-        String key = String.format("%s->%s", MioConstants.getSocketAddressKey(message.getLocalAddress()),
-                MioConstants.getSocketAddressKey(message.getRemoteAddress()));
-        Channel channel = serverHandler.getChannels().get(key);
+        Channel channel = findChannel(message);
         if (channel == null) {
-            throw new MioException(MioException.NOT_FOUND_CLIENT, "Not found client:" + key);
+            throw new MioException(MioException.NOT_FOUND_CLIENT, "Not found client:" + (message.getConnectionId() == 0 ?
+                    MioConstants.getSocketAddressKey(message.getRemoteAddress()) : message.getConnectionId()));
         }
 
         // send
         channel.writeAndFlush(message);
     }
 
+    @Override
+    public int broadcast(MioMessage message) throws Throwable {
+        return initializer.broadcast(serverConfig, serialize, compress, serverHandler.getChannels(), message);
+    }
+
+    @Override
+    public int multicast(String group, MioMessage message) throws Throwable {
+        ChannelGroup channelGroup = groups.get(group);
+        if (channelGroup == null || channelGroup.isEmpty()) {
+            return 0;
+        }
+
+        return initializer.broadcast(serverConfig, serialize, compress, channelGroup, message);
+    }
+
+    @Override
+    public void joinGroup(String group, long connectionId) {
+        Channel channel = serverHandler.getChannels().get(connectionId);
+        if (channel == null) {
+            throw new MioException(MioException.NOT_FOUND_CLIENT, "Not found client:" + connectionId);
+        }
+
+        // the closed channel is removed from the channel group automatically
+        groups.computeIfAbsent(group, k -> new DefaultChannelGroup(group, GlobalEventExecutor.INSTANCE)).add(channel);
+    }
+
+    @Override
+    public void leaveGroup(String group, long connectionId) {
+        ChannelGroup channelGroup = groups.get(group);
+        Channel channel = serverHandler.getChannels().get(connectionId);
+        if (channelGroup != null && channel != null) {
+            channelGroup.remove(channel);
+        }
+    }
+
+    /**
+     * The find channel by the connection id, or by the local and remote address
+     *
+     * @param message {@link MioMessage}
+     * @return {@link Channel}
+     */
+    private Channel findChannel(MioMessage message) {
+        ChannelRegistry channels = serverHandler.getChannels();
+        if (message.getConnectionId() != 0) {
+            return channels.get(message.getConnectionId());
+        }
+
+        for (Channel channel : channels) {
+            if (Objects.equals(channel.remoteAddress(), message.getRemoteAddress()) &&
+                    (message.getLocalAddress() == null || Objects.equals(channel.localAddress(), message.getLocalAddress()))) {
+                return channel;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The graceful drain destroy
+     * <p>
+     * Step 1：stop accepting the new connection
+     * Step 2：tell the clients going away, so they stop routing the new request to this server
+     * Step 3：wait for the in-flight requests to be replied, bounded by shutdownTimeoutMillis
+     * Step 4：close the client channels after the replies flushed
+     */
     @Override
     public void destroy() {
-        // close server channel
+        if (!destroyed.compareAndSet(false, true)) {
+            return;
+        }
+
+        // Step 1：close server channel
         if (serverChannel != null) {
             try {
-                serverChannel.close();
+                serverChannel.close().syncUninterruptibly();
             } catch (Exception e) {
                 log.error("Close server channel exception", e);
             }
         }
 
-        // close handler channel
         if (serverHandler != null) {
-            ConcurrentMap<String, Channel> channels = serverHandler.getChannels();
-            for (Map.Entry<String, Channel> entry : channels.entrySet()) {
+            // Step 2：send going away
+            serverHandler.getChannels().forEach(channel -> {
+                try {
+                    initializer.goAway(channel);
+                } catch (Exception e) {
+                    log.error("Send going away exception: {}", channel, e);
+                }
+            });
+
+            // Step 3：wait for the in-flight requests
+            long deadline = System.currentTimeMillis() + serverConfig.getShutdownTimeoutMillis();
+            while (serverHandler.getInflightCount() > 0 && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(DRAIN_CHECK_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (serverHandler.getInflightCount() > 0) {
+                log.warn("The server drain timeout, in-flight requests: {}", serverHandler.getInflightCount());
+            }
+
+            // Step 4：close handler channel, after the pending replies flushed
+            serverHandler.getChannels().forEach(channel -> {
                 try {
-                    Channel channel = entry.getValue();
-                    if (channel != null) {
-                        channel.close();
-                    }
+                    channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
                 } catch (Exception e) {
-                    log.error("Close client channel exception: {}", entry.getKey(), e);
+                    log.error("Close client channel exception: {}", channel, e);
                 }
+            });
+        }
+
+        // shutdown biz thread pool
+        if (serverHandler != null) {
+            try {
+                serverHandler.shutdown();
+            } catch (Exception e) {
+                log.error("Shutdown server biz thread pool exception", e);
             }
         }
 
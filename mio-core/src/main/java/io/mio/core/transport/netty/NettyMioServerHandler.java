@@ -5,15 +5,28 @@ import io.mio.core.MioConstants;
 import io.mio.core.MioMessage;
 import io.mio.core.MioProcessor;
 import io.mio.core.transport.ServerConfig;
+import io.mio.core.transport.netty.mio.NettyMioControl;
 import io.mio.core.utils.ExceptionUtils;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.AttributeKey;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * NettyMioServerHandler
@@ -29,6 +42,11 @@ import java.util.concurrent.*;
 @ChannelHandler.Sharable
 public class NettyMioServerHandler extends SimpleChannelInboundHandler<MioMessage> {
 
+    /**
+     * The heartbeat mark of channel, the peer pings so that it is reaped on reader idle
+     */
+    private static final AttributeKey<Boolean> HEARTBEAT_KEY = AttributeKey.valueOf("MIO_SERVER_HEARTBEAT");
+
     /**
      * The max channel connections number
      */
@@ -37,40 +55,117 @@ public class NettyMioServerHandler extends SimpleChannelInboundHandler<MioMessag
      * The global processor function
      */
     private final MioProcessor<MioMessage> processor;
+    private final NettyInitializer initializer;
     /**
      * The all client channel
      */
-    private ConcurrentMap<String, Channel> channels;
-    private StandardThreadExecutor threadExecutor;
+    private final ChannelRegistry channels;
+    /**
+     * The biz thread pool, null is processing on the executor of the handler
+     */
+    private ExecutorService threadExecutor;
+    /**
+     * The sticky single-thread biz executors of affinity mode, a channel is pinned to one of them by its slot,
+     * null is not affinity mode
+     */
+    private ExecutorService[] affinityExecutors;
+    /**
+     * The adaptive limiter of in-flight requests, null is disabled
+     */
+    private AdaptiveLimiter limiter;
+    /**
+     * The isolated biz thread pool(bulkhead) of the service, key is 'group:service' or 'service'
+     */
+    private Map<String, ExecutorService> isolationExecutors;
+    /**
+     * The priority lane of the service
+     */
+    private final Map<String, Integer> servicePriorities;
+    /**
+     * The number of requests received but not replied and flushed, used to drain on shutdown
+     */
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    /**
+     * The timeout millis(ms) to wait for the biz thread pools to terminate on shutdown
+     */
+    private final int shutdownTimeoutMillis;
 
-    public NettyMioServerHandler(ServerConfig serverConfig, MioProcessor<MioMessage> processor) {
+    public NettyMioServerHandler(ServerConfig serverConfig, MioProcessor<MioMessage> processor,
+                                 NettyInitializer initializer) {
         super();
         this.maxConnections = serverConfig.getMaxConnections();
         this.processor = processor;
-        this.channels = new ConcurrentHashMap<>(Math.min(serverConfig.getMaxConnections(), 100));
-        if (serverConfig.isBizThread()) {
-            String threadName = String.format("server-%s:%s", serverConfig.getHostname(), serverConfig.getPort());
-            ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat(threadName).setDaemon(true).build();
-            this.threadExecutor = new StandardThreadExecutor(serverConfig.getBizCoreThreads(),
-                    serverConfig.getBizMaxThreads(), serverConfig.getBizKeepAliveTime(),
-                    TimeUnit.MILLISECONDS, serverConfig.getBizQueueCapacity(), threadFactory);
+        this.initializer = initializer;
+        this.channels = new ChannelRegistry(serverConfig.getMaxConnections());
+        this.shutdownTimeoutMillis = serverConfig.getShutdownTimeoutMillis();
+        this.servicePriorities = serverConfig.getBizPriorities() == null ?
+                Collections.emptyMap() : new HashMap<>(serverConfig.getBizPriorities());
+        if (serverConfig.isAdaptiveLimit()) {
+            this.limiter = new AdaptiveLimiter(serverConfig.getBizMaxThreads(),
+                    serverConfig.getAdaptiveMinLimit(), serverConfig.getAdaptiveMaxLimit());
+        }
+        if (!serverConfig.isBizThread() || processor.isNonBlocking()) {
+            return;
+        }
+
+        String threadName = String.format("server-%s:%s", serverConfig.getHostname(), serverConfig.getPort());
+        boolean virtualThread = serverConfig.isBizVirtualThread();
+        if (virtualThread && !VirtualThreadExecutor.isSupported()) {
+            virtualThread = false;
+            log.warn("The virtual thread is not supported by the JDK {}, fallback to the biz thread pool",
+                    System.getProperty("java.version"));
+        }
+
+        if (virtualThread) {
+            this.threadExecutor = new VirtualThreadExecutor(threadName, serverConfig.getBizVirtualMaxConcurrency());
+        } else if (serverConfig.isBizAffinity()) {
+            // the request hops from the IO thread to the sticky executor of channel, and the response hops back,
+            // the queue of each executor is bounded by bizQueueCapacity, the more is rejected
+            this.affinityExecutors = new ExecutorService[Math.max(1, serverConfig.getBizCoreThreads())];
+            for (int i = 0; i < affinityExecutors.length; i++) {
+                affinityExecutors[i] = buildExecutor(threadName + "-" + i, serverConfig,
+                        1, 1, serverConfig.getBizQueueCapacity());
+            }
+        } else {
+            this.threadExecutor = buildExecutor(threadName, serverConfig, serverConfig.getBizCoreThreads(),
+                    serverConfig.getBizMaxThreads(), serverConfig.getBizQueueCapacity());
+        }
+
+        // the isolated bulkhead of the service
+        Map<String, Integer> bizIsolations = serverConfig.getBizIsolations();
+        if (bizIsolations != null && !bizIsolations.isEmpty()) {
+            this.isolationExecutors = new HashMap<>(bizIsolations.size());
+            for (Map.Entry<String, Integer> entry : bizIsolations.entrySet()) {
+                int threads = Math.max(1, entry.getValue());
+                String isolationName = threadName + "-" + entry.getKey();
+                isolationExecutors.put(entry.getKey(), virtualThread ?
+                        new VirtualThreadExecutor(isolationName, threads) :
+                        buildExecutor(isolationName, serverConfig, Math.min(serverConfig.getBizCoreThreads(), threads),
+                                threads, threads));
+            }
         }
     }
 
+    /**
+     * The number of requests received but not replied
+     *
+     * @return in-flight count
+     */
+    public int getInflightCount() {
+        return inflight.get();
+    }
+
     @Override
     public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
         Channel channel = ctx.channel();
-        String channelKey = getChannelKey(channel);
-
-        int channelSize = channels.size();
-        if (channelSize > maxConnections) {
+        long connectionId = channels.register(channel);
+        if (connectionId == 0) {
             // Exceeding the maximum number of connections limit, direct close connection
             log.warn("Server connected channel out of limit: limit={}, current={}, channel={}",
-                    maxConnections, channelSize, channelKey);
+                    maxConnections, channels.size(), getChannelKey(channel));
             channel.close();
         } else {
-            channels.put(channelKey, channel);
-            log.debug("Server channel registered:{}", channelKey);
+            log.debug("Server channel registered:{}, connection id={}", channel, connectionId);
             super.channelRegistered(ctx);
         }
     }
@@ -78,37 +173,221 @@ public class NettyMioServerHandler extends SimpleChannelInboundHandler<MioMessag
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MioMessage msg) throws Exception {
         Channel channel = ctx.channel();
-        String channelKey = getChannelKey(channel);
+        msg.setConnectionId(ChannelRegistry.getConnectionId(channel));
+        inflight.incrementAndGet();
+
+        AdaptiveLimiter.Listener listener = null;
+        if (limiter != null) {
+            // shed the load before the queue builds up
+            listener = limiter.acquire();
+            if (listener == null) {
+                log.warn("Server processor adaptive limiter[{}] rejected: limit={}", channel, limiter.getLimit());
+                new Reply(channel, msg, null).accept(new MioMessage(MioMessage.THREAD_POOL_REJECTED,
+                        "Adaptive limit rejected: " + limiter.getLimit()));
+                return;
+            }
+        }
 
+        Reply reply = new Reply(channel, msg, listener);
         try {
-            if (threadExecutor == null) {
-                processor.onProcessor(channel::writeAndFlush, msg);
+            Executor executor = selectExecutor(msg, channel);
+            if (executor == null) {
+                process(reply);
             } else {
-                threadExecutor.execute(() -> processor.onProcessor(channel::writeAndFlush, msg));
+                Runnable task = () -> {
+                    try {
+                        process(reply);
+                    } catch (Throwable t) {
+                        // nothing is thrown back to the IO thread, so reply the failure here
+                        fail(reply, t);
+                    }
+                };
+                if (executor instanceof PriorityLaneExecutor) {
+                    ((PriorityLaneExecutor) executor).execute(task, getPriority(msg));
+                } else {
+                    executor.execute(task);
+                }
             }
         } catch (Throwable t) {
-            if (t instanceof RejectedExecutionException) {
-                log.warn("Server processor thread pool[{}] rejected:{}", channelKey, t.getMessage());
-                channel.writeAndFlush(new MioMessage(MioMessage.THREAD_POOL_REJECTED, ExceptionUtils.toStack(t)));
-            } else {
-                log.error("Server processor error:{}", channelKey, t);
-                channel.writeAndFlush(new MioMessage(MioMessage.SERVICE_ERROR, ExceptionUtils.toStack(t)));
+            fail(reply, t);
+        }
+    }
+
+    /**
+     * The process message
+     *
+     * @param reply {@link Reply}
+     */
+    private void process(Reply reply) {
+        processor.onProcessor(reply, reply.request);
+    }
+
+    /**
+     * The reply the failure of processing, if not replied yet
+     *
+     * @param reply {@link Reply}
+     * @param t     {@link Throwable}
+     */
+    private void fail(Reply reply, Throwable t) {
+        if (reply.listener != null) {
+            reply.listener.onIgnore();
+        }
+        if (t instanceof RejectedExecutionException) {
+            log.warn("Server processor thread pool[{}] rejected:{}", reply.channel, t.getMessage());
+            reply.accept(new MioMessage(MioMessage.THREAD_POOL_REJECTED, ExceptionUtils.toStack(t)));
+        } else {
+            log.error("Server processor error:{}", reply.channel, t);
+            reply.accept(new MioMessage(MioMessage.SERVICE_ERROR, ExceptionUtils.toStack(t)));
+        }
+    }
+
+    /**
+     * The select the executor to process message
+     *
+     * @param msg     {@link MioMessage}
+     * @param channel {@link Channel}
+     * @return {@link Executor}, null is inline on the IO thread
+     */
+    private Executor selectExecutor(MioMessage msg, Channel channel) {
+        if (isolationExecutors != null) {
+            Executor executor = selectIsolationExecutor(msg);
+            if (executor != null) {
+                return executor;
+            }
+        }
+        if (affinityExecutors != null) {
+            // the slot of the live channels is dense, so they are spread evenly
+            return affinityExecutors[Math.floorMod((int) msg.getConnectionId(), affinityExecutors.length)];
+        }
+
+        return threadExecutor;
+    }
+
+    /**
+     * The select the isolated executor by 'group:service', then by 'service'
+     *
+     * @param msg {@link MioMessage}
+     * @return {@link Executor}, null is not isolated
+     */
+    private Executor selectIsolationExecutor(MioMessage msg) {
+        Map<String, Object> attachments = msg.getAttachments();
+        Object service = attachments.get(MioConstants.SERVICE_KEY);
+        if (service == null) {
+            return null;
+        }
+
+        Object group = attachments.get(MioConstants.GROUP_KEY);
+        if (group != null) {
+            Executor executor = isolationExecutors.get(group + ":" + service);
+            if (executor != null) {
+                return executor;
             }
         }
+
+        return isolationExecutors.get(String.valueOf(service));
+    }
+
+    /**
+     * The priority of the request: the priority attachment, then the priority of the service
+     *
+     * @param msg {@link MioMessage}
+     * @return priority, 0 is the highest, negative is the default
+     */
+    private int getPriority(MioMessage msg) {
+        Object priority = msg.getAttachments().get(MioConstants.PRIORITY_KEY);
+        if (priority instanceof Number) {
+            return ((Number) priority).intValue();
+        } else if (priority instanceof String) {
+            try {
+                return Integer.parseInt((String) priority);
+            } catch (NumberFormatException e) {
+                log.warn("Illegal request priority: {}", priority);
+            }
+        }
+        if (servicePriorities.isEmpty()) {
+            return -1;
+        }
+
+        Object service = msg.getAttachments().get(MioConstants.SERVICE_KEY);
+        Integer servicePriority = service == null ? null : servicePriorities.get(String.valueOf(service));
+        return servicePriority == null ? -1 : servicePriority;
+    }
+
+    /**
+     * The shutdown all the biz thread pool, the queued tasks still run, bounded by shutdownTimeoutMillis
+     */
+    public void shutdown() {
+        List<ExecutorService> executors = new ArrayList<>();
+        if (threadExecutor != null) {
+            executors.add(threadExecutor);
+        }
+        if (affinityExecutors != null) {
+            executors.addAll(Arrays.asList(affinityExecutors));
+        }
+        if (isolationExecutors != null) {
+            executors.addAll(isolationExecutors.values());
+        }
+
+        executors.forEach(ExecutorService::shutdown);
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        try {
+            for (ExecutorService executor : executors) {
+                long timeoutMillis = deadline - System.currentTimeMillis();
+                if (timeoutMillis <= 0 || !executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    log.warn("The biz thread pool shutdown timeout: {}", executor);
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        log.debug("Server channel active:{}", getChannelKey(ctx.channel()));
+        log.debug("Server channel active:{}", ctx.channel());
         super.channelActive(ctx);
     }
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        log.debug("Server channel inactive:{}", getChannelKey(ctx.channel()));
+        log.debug("Server channel inactive:{}", ctx.channel());
         super.channelInactive(ctx);
     }
 
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        Channel channel = ctx.channel();
+        if (evt instanceof IdleStateEvent) {
+            // only the peer pinging is reaped, the older peer or the peer without heartbeat never pings
+            if (((IdleStateEvent) evt).state() == IdleState.READER_IDLE &&
+                    Boolean.TRUE.equals(channel.attr(HEARTBEAT_KEY).get())) {
+                // nothing read in the heartbeat times, the connection is dead(e.g. half-open)
+                log.warn("Server channel heartbeat timeout, close it:{}", getChannelKey(channel));
+                channel.close();
+            }
+        } else if (evt == NettyMioControl.HEARTBEAT) {
+            // answer the ping, and arm the reaping
+            channel.attr(HEARTBEAT_KEY).set(Boolean.TRUE);
+            initializer.heartbeat(channel);
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    /**
+     * The backpressure: stop reading the requests of the slow consumer until its outbound buffer is drained
+     */
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel channel = ctx.channel();
+        boolean writable = channel.isWritable();
+        channel.config().setAutoRead(writable);
+        log.debug("Server channel writability changed:{}, writable={}", channel, writable);
+        processor.onWritabilityChanged(ChannelRegistry.getConnectionId(channel), writable);
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         processor.onFailure(cause);
@@ -120,9 +399,8 @@ public class NettyMioServerHandler extends SimpleChannelInboundHandler<MioMessag
 
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
-        String channelKey = getChannelKey(ctx.channel());
-        channels.remove(channelKey);
-        log.debug("Server channel unregistered:{}", channelKey);
+        channels.unregister(ctx.channel());
+        log.debug("Server channel unregistered:{}", ctx.channel());
         super.channelUnregistered(ctx);
     }
 
@@ -139,4 +417,60 @@ public class NettyMioServerHandler extends SimpleChannelInboundHandler<MioMessag
                 MioConstants.getSocketAddressKey(channel.remoteAddress()));
     }
 
+    private static ExecutorService buildExecutor(String threadName, ServerConfig serverConfig,
+                                                 int coreThreads, int maxThreads, int queueCapacity) {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(threadName.replace("%", "%%") + "-%d").setDaemon(true).build();
+        StandardThreadExecutor executor = new StandardThreadExecutor(coreThreads, maxThreads,
+                serverConfig.getBizKeepAliveTime(), TimeUnit.MILLISECONDS, queueCapacity, threadFactory);
+        if (serverConfig.getBizPriorityLanes() <= 1) {
+            return executor;
+        }
+
+        // the priority lanes on the biz thread pool
+        return new PriorityLaneExecutor(executor, serverConfig.getBizPriorityLanes(),
+                serverConfig.getBizPriorityWeights(), serverConfig.getBizPriorityDefault());
+    }
+
+    /**
+     * The reply of a request, only the first response is written and leaves the in-flight requests
+     * <p>
+     * The response is written with the request id, so that the multiplexed client can match it,
+     * and the limiter permit is released with the rtt sample.
+     */
+    private class Reply extends AtomicBoolean implements Consumer<MioMessage> {
+
+        private final Channel channel;
+        private final MioMessage request;
+        private final AdaptiveLimiter.Listener listener;
+
+        Reply(Channel channel, MioMessage request, AdaptiveLimiter.Listener listener) {
+            this.channel = channel;
+            this.request = request;
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(MioMessage response) {
+            if (!compareAndSet(false, true)) {
+                log.warn("Server processor replied more than once:{}", channel);
+                return;
+            }
+
+            if (listener != null) {
+                listener.onSuccess();
+            }
+
+            // leave the in-flight requests only after the response is flushed, so the drain never closes it ahead
+            response.setId(request.getId());
+            try {
+                channel.writeAndFlush(response).addListener(future -> inflight.decrementAndGet());
+            } catch (Throwable t) {
+                inflight.decrementAndGet();
+                throw t;
+            }
+        }
+
+    }
+
 }
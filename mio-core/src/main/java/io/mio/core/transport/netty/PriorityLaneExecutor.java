@@ -0,0 +1,285 @@
+package io.mio.core.transport.netty;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Priority Lane Executor
+ * <p>
+ * The task waits in the lane of its priority(0 is the highest), and the delegate thread pool only runs the dispatch
+ * token, which takes the task to run from the lanes when the thread is free:
+ * 1.Strict: always take from the highest non-empty lane
+ * 2.Weighted: take from the lanes in proportion to the weights, so the low lane is not starved
+ * <p>
+ * Tips：
+ * 1.A token is submitted to the delegate for every task, so the thread, queue and rejection of the delegate
+ * are still effective, and the task is removed from its lane if the token is rejected.
+ * 2.The token runs the tasks until the lanes are empty, so a task in the lanes always has a running or pending
+ * token to take it, even if its own token is rejected after the task has been taken by another token.
+ * 3.The per-lane metrics are in {@link LaneStats}.
+ *
+ * @author lry
+ */
+public class PriorityLaneExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Lane[] lanes;
+    /**
+     * The weights of lanes, null is strict
+     */
+    private final int[] weights;
+    private final int totalWeight;
+    private final int defaultLane;
+    private final AtomicLong ticket = new AtomicLong(0);
+
+    public PriorityLaneExecutor(ExecutorService delegate, int laneCount, int[] weights, int defaultLane) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("Illegal priority lane count: " + laneCount);
+        }
+        if (weights != null && weights.length > 0 && weights.length != laneCount) {
+            throw new IllegalArgumentException("The priority weights must be as many as the lanes: " + laneCount);
+        }
+
+        this.delegate = delegate;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+        }
+
+        int sum = 0;
+        if (weights != null && weights.length > 0) {
+            for (int weight : weights) {
+                sum += Math.max(1, weight);
+            }
+        }
+
+        this.weights = sum > 0 ? weights.clone() : null;
+        this.totalWeight = sum;
+        this.defaultLane = toLane(defaultLane < 0 ? laneCount / 2 : defaultLane);
+    }
+
+    /**
+     * The execute in the default lane
+     *
+     * @param command {@link Runnable}
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, defaultLane);
+    }
+
+    /**
+     * The execute in the lane of priority
+     *
+     * @param command  {@link Runnable}
+     * @param priority priority, 0 is the highest, negative is the default lane
+     */
+    public void execute(Runnable command, int priority) {
+        Lane lane = lanes[priority < 0 ? defaultLane : toLane(priority)];
+        LaneTask task = new LaneTask(command, lane);
+        lane.queue.offer(task);
+        lane.stats.queued.incrementAndGet();
+        lane.stats.submitted.increment();
+
+        try {
+            delegate.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            // the task has been taken by another token if not found
+            if (lane.queue.remove(task)) {
+                lane.stats.queued.decrementAndGet();
+                lane.stats.rejected.increment();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The default lane of the task without priority
+     *
+     * @return default lane
+     */
+    public int getDefaultLane() {
+        return defaultLane;
+    }
+
+    /**
+     * The metrics of the lane
+     *
+     * @param priority priority
+     * @return {@link LaneStats}
+     */
+    public LaneStats getLaneStats(int priority) {
+        return lanes[toLane(priority)].stats;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * The run the tasks taken from the lanes until empty, in the thread of delegate
+     */
+    private void dispatch() {
+        for (LaneTask task = poll(); task != null; task = poll()) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // report as the thread pool does, and keep running the others
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+        }
+    }
+
+    private LaneTask poll() {
+        int first = 0;
+        if (weights != null) {
+            // the preferred lane of this turn, by the weights
+            long slot = ticket.getAndIncrement() % totalWeight;
+            for (int i = 0; i < weights.length; i++) {
+                slot -= Math.max(1, weights[i]);
+                if (slot < 0) {
+                    first = i;
+                    break;
+                }
+            }
+        }
+
+        // the preferred lane first, then the others from the highest
+        LaneTask task = lanes[first].poll();
+        for (int i = 0; task == null && i < lanes.length; i++) {
+            if (i != first) {
+                task = lanes[i].poll();
+            }
+        }
+
+        return task;
+    }
+
+    private int toLane(int priority) {
+        return Math.max(0, Math.min(lanes.length - 1, priority));
+    }
+
+    /**
+     * The lane of a priority
+     */
+    private static class Lane {
+
+        private final Queue<LaneTask> queue = new ConcurrentLinkedQueue<>();
+        private final LaneStats stats;
+
+        Lane(int priority) {
+            this.stats = new LaneStats(priority);
+        }
+
+        LaneTask poll() {
+            LaneTask task = queue.poll();
+            if (task != null) {
+                stats.queued.decrementAndGet();
+            }
+
+            return task;
+        }
+
+    }
+
+    /**
+     * The task in the lane
+     */
+    private static class LaneTask implements Runnable {
+
+        private final Runnable command;
+        private final Lane lane;
+        private final long createNanos = System.nanoTime();
+
+        LaneTask(Runnable command, Lane lane) {
+            this.command = command;
+            this.lane = lane;
+        }
+
+        @Override
+        public void run() {
+            lane.stats.waitNanos.add(System.nanoTime() - createNanos);
+            try {
+                command.run();
+            } finally {
+                lane.stats.completed.increment();
+            }
+        }
+
+    }
+
+    /**
+     * The metrics of a lane
+     *
+     * @author lry
+     */
+    @Getter
+    public static class LaneStats {
+
+        private final int priority;
+        private final AtomicInteger queued = new AtomicInteger(0);
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        LaneStats(int priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * The average wait time(ns) in the lane
+         *
+         * @return average wait time
+         */
+        public long getAverageWaitNanos() {
+            long count = completed.sum();
+            return count == 0 ? 0 : waitNanos.sum() / count;
+        }
+
+        @Override
+        public String toString() {
+            return "LaneStats(priority=" + priority + ", queued=" + queued.get() + ", submitted=" + submitted.sum() +
+                    ", rejected=" + rejected.sum() + ", completed=" + completed.sum() +
+                    ", averageWaitNanos=" + getAverageWaitNanos() + ")";
+        }
+
+    }
+
+}
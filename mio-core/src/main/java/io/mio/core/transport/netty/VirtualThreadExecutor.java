@@ -0,0 +1,155 @@
+package io.mio.core.transport.netty;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Virtual Thread Executor
+ * <p>
+ * Thread-per-task on the virtual thread(JDK 21+), which is cheap to block on the remote resource:
+ * 场景优势：比较适合于业务处理大量阻塞调用（比如数据库、远程服务）的场景，不再受限于平台线程数
+ * <p>
+ * Tips：
+ * 1.The concurrency is limited by the {@link Semaphore} instead of the threads and queue, the task is
+ * rejected with {@link RejectedExecutionException} if the max concurrency is reached.
+ * 2.The virtual thread is created by reflection, so it compiles and runs on the old JDK,
+ * see {@link #isSupported()} before {@link #VirtualThreadExecutor(String, int)}.
+ *
+ * @author lry
+ */
+@Slf4j
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final Semaphore semaphore;
+    private final int maxConcurrency;
+
+    public VirtualThreadExecutor(String threadName, int maxConcurrency) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual thread is not supported by the JDK " +
+                    System.getProperty("java.version"));
+        }
+
+        this.delegate = newThreadPerTaskExecutor(threadName);
+        this.maxConcurrency = maxConcurrency;
+        this.semaphore = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * The JDK supports the virtual thread or not
+     *
+     * @return true if supported
+     */
+    public static boolean isSupported() {
+        return Holder.SUPPORTED;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!semaphore.tryAcquire()) {
+            throw new RejectedExecutionException("Task rejected, the max concurrency is reached: " + maxConcurrency);
+        }
+
+        try {
+            delegate.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    semaphore.release();
+                }
+            });
+        } catch (Throwable t) {
+            semaphore.release();
+            throw t;
+        }
+    }
+
+    /**
+     * The number of tasks being processed
+     *
+     * @return the active count
+     */
+    public int getActiveCount() {
+        return maxConcurrency - semaphore.availablePermits();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * The build executor by Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())
+     *
+     * @param threadName thread name prefix
+     * @return {@link ExecutorService}
+     */
+    private static ExecutorService newThreadPerTaskExecutor(String threadName) {
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, newVirtualThreadFactory(threadName + "-"));
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Build virtual thread executor failure", e);
+        }
+    }
+
+    private static ThreadFactory newVirtualThreadFactory(String prefix) throws ReflectiveOperationException {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+        return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    }
+
+    /**
+     * The lazy check of the virtual thread support
+     */
+    private static class Holder {
+
+        private static final boolean SUPPORTED = check();
+
+        private static boolean check() {
+            try {
+                Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return newVirtualThreadFactory("mio-virtual-") != null;
+            } catch (Throwable t) {
+                log.debug("Virtual thread is not supported: {}", t.toString());
+                return false;
+            }
+        }
+
+    }
+
+}
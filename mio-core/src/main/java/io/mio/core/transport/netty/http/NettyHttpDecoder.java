@@ -3,6 +3,7 @@ package io.mio.core.transport.netty.http;
 import io.mio.core.MioConstants;
 import io.mio.core.MioMessage;
 import io.mio.core.serialize.Serialize;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
@@ -50,12 +51,11 @@ public class NettyHttpDecoder extends MessageToMessageDecoder<FullHttpMessage> {
             headers.put(MioConstants.RESPONSE_STATUS_KEY, response.status().code());
         }
 
-        // parse body data
-        byte[] body = new byte[msg.content().readableBytes()];
-        msg.content().getBytes(0, body);
+        // parse body data(read the content directly without copy)
+        final MioMessage mioMessage = serialize.deserialize(
+                new ByteBufInputStream(msg.content().duplicate()), MioMessage.class);
 
         // build message
-        final MioMessage mioMessage = serialize.deserialize(body, MioMessage.class);
         mioMessage.wrapper(channel.localAddress(), channel.remoteAddress());
         out.add(mioMessage);
     }
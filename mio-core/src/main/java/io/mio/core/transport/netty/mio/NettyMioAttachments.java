@@ -0,0 +1,288 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import io.mio.core.MioException;
+import io.mio.core.MioMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * NettyMioAttachments
+ * <p>
+ * The binary attachments codec of protocol version 3:
+ * <pre>
+ * ===================================================================================================================================
+ * [Attachments]：count(varint) + entry * count
+ * [Entry]：key + value type(1 byte) + value
+ * [Key]：(well-known key index &lt;&lt; 1 | 1)(varint), or (key length &lt;&lt; 1)(varint) + key(utf-8)
+ * [Status]：code(1 byte) + (error length + 1, 0 is null)(varint) + error(utf-8), before the attachments(since protocol version 5)
+ * ===================================================================================================================================
+ * </pre>
+ * <p>
+ * Tips：
+ * 1.Well-known keys are written as index and decoded to the interned constants.
+ * 2.String, Integer, Long, Boolean, Double and byte[] values keep their type, others are written as String.
+ * 3.The well-known key table is part of the protocol, only append to the end of it.
+ *
+ * @author lry
+ */
+public class NettyMioAttachments {
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_BYTES = 6;
+
+    /**
+     * The well-known keys, the index is written on the wire
+     */
+    private static final String[] KEYS = {
+            MioConstants.SERVICE_KEY,
+            MioConstants.GROUP_KEY,
+            MioConstants.VERSION_KEY,
+            MioConstants.TIMEOUT_KEY,
+            MioConstants.PRIORITY_KEY,
+            MioConstants.TRACE_ID_KEY,
+            MioConstants.URI_KEY,
+            MioConstants.PARAMETERS_KEY,
+            MioConstants.REQUEST_METHOD_KEY,
+            MioConstants.RESPONSE_STATUS_KEY
+    };
+    private static final Map<String, Integer> KEY_INDEXES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEXES.put(KEYS[i], i);
+        }
+    }
+
+    /**
+     * The encode attachments to buffer
+     *
+     * @param attachments attachments
+     * @param out         {@link ByteBuf}
+     */
+    public static void encode(Map<String, Object> attachments, ByteBuf out) {
+        if (attachments.isEmpty()) {
+            return;
+        }
+
+        writeVarInt(out, attachments.size());
+        for (Map.Entry<String, Object> entry : attachments.entrySet()) {
+            // write key
+            Integer index = KEY_INDEXES.get(entry.getKey());
+            if (index == null) {
+                writeVarInt(out, ByteBufUtil.utf8Bytes(entry.getKey()) << 1);
+                ByteBufUtil.writeUtf8(out, entry.getKey());
+            } else {
+                writeVarInt(out, index << 1 | 1);
+            }
+
+            // write type and value
+            Object value = entry.getValue();
+            if (value == null) {
+                out.writeByte(TYPE_NULL);
+            } else if (value instanceof Integer) {
+                out.writeByte(TYPE_INT);
+                writeVarLong(out, zigzag((Integer) value));
+            } else if (value instanceof Long) {
+                out.writeByte(TYPE_LONG);
+                writeVarLong(out, zigzag((Long) value));
+            } else if (value instanceof Boolean) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                out.writeByte(TYPE_BYTES);
+                writeVarInt(out, bytes.length);
+                out.writeBytes(bytes);
+            } else {
+                String str = String.valueOf(value);
+                out.writeByte(TYPE_STRING);
+                writeVarInt(out, ByteBufUtil.utf8Bytes(str));
+                ByteBufUtil.writeUtf8(out, str);
+            }
+        }
+    }
+
+    /**
+     * The encode the status of message to buffer
+     *
+     * @param code  status code
+     * @param error error message, nullable
+     * @param out   {@link ByteBuf}
+     */
+    public static void encodeStatus(byte code, String error, ByteBuf out) {
+        out.writeByte(code);
+        if (error == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, ByteBufUtil.utf8Bytes(error) + 1);
+            ByteBufUtil.writeUtf8(out, error);
+        }
+    }
+
+    /**
+     * The decode the status of message from buffer, the attachments follow it
+     *
+     * @param in      {@link ByteBuf}
+     * @param message {@link MioMessage}
+     * @throws MioException {@link MioException#ILLEGAL_ATTACHMENT} if the status is malformed or truncated
+     */
+    public static void decodeStatus(ByteBuf in, MioMessage message) {
+        try {
+            message.setCode(in.readByte());
+            int length = readVarInt(in);
+            message.setError(length == 0 ? null : readString(in, checkLength(in, length - 1)));
+        } catch (IndexOutOfBoundsException e) {
+            throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Truncated status", e);
+        }
+    }
+
+    /**
+     * The decode attachments from buffer
+     *
+     * @param in          {@link ByteBuf}, all the readable bytes are attachments
+     * @param attachments attachments
+     * @throws MioException {@link MioException#ILLEGAL_ATTACHMENT} if the attachments are malformed or truncated
+     */
+    public static void decode(ByteBuf in, Map<String, Object> attachments) {
+        if (!in.isReadable()) {
+            return;
+        }
+
+        try {
+            doDecode(in, attachments);
+        } catch (IndexOutOfBoundsException e) {
+            throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Truncated attachments", e);
+        }
+    }
+
+    private static void doDecode(ByteBuf in, Map<String, Object> attachments) {
+        // every entry has one byte of key header and one byte of value type at least
+        int count = readVarInt(in);
+        if (count > in.readableBytes() / 2) {
+            throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Attachment count out of limit", count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            // read key
+            String key;
+            int keyHeader = readVarInt(in);
+            if ((keyHeader & 1) == 1) {
+                int index = keyHeader >>> 1;
+                if (index >= KEYS.length) {
+                    throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Unknown attachment key index", index);
+                }
+                key = KEYS[index];
+            } else {
+                key = readString(in, checkLength(in, keyHeader >>> 1));
+            }
+
+            // read type and value
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_NULL:
+                    attachments.put(key, null);
+                    break;
+                case TYPE_STRING:
+                    attachments.put(key, readString(in, readLength(in)));
+                    break;
+                case TYPE_INT:
+                    attachments.put(key, (int) unzigzag(readVarLong(in)));
+                    break;
+                case TYPE_LONG:
+                    attachments.put(key, unzigzag(readVarLong(in)));
+                    break;
+                case TYPE_BOOLEAN:
+                    attachments.put(key, in.readBoolean());
+                    break;
+                case TYPE_DOUBLE:
+                    attachments.put(key, in.readDouble());
+                    break;
+                case TYPE_BYTES:
+                    byte[] bytes = new byte[readLength(in)];
+                    in.readBytes(bytes);
+                    attachments.put(key, bytes);
+                    break;
+                default:
+                    throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Unknown attachment value type", type);
+            }
+        }
+    }
+
+    /**
+     * The read length prefix, and check it before any allocation
+     *
+     * @param in {@link ByteBuf}
+     * @return length
+     */
+    private static int readLength(ByteBuf in) {
+        return checkLength(in, readVarInt(in));
+    }
+
+    private static int checkLength(ByteBuf in, int length) {
+        if (length < 0 || length > in.readableBytes()) {
+            throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Attachment length out of limit", length);
+        }
+
+        return length;
+    }
+
+    private static String readString(ByteBuf in, int length) {
+        return in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(ByteBuf out, int value) {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarLong(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static int readVarInt(ByteBuf in) {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Malformed attachment varint", value);
+        }
+
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuf in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new MioException(MioException.ILLEGAL_ATTACHMENT, "Malformed attachment varint");
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.mio.core.transport.netty.mio;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NettyMioCompressStats
+ * <p>
+ * The observed compression ratio of each message data type, shared by all encoders of a server or client.
+ * <p>
+ * Tips：
+ * 1.The type whose ratio(compressed/raw) stays above {@link #POOR_RATIO} is not worth compressing
+ * 2.One of every {@link #PROBE_INTERVAL} skipped messages is still compressed, so that the type can recover
+ *
+ * @author lry
+ */
+public class NettyMioCompressStats {
+
+    /**
+     * The poor compression ratio(‰)
+     */
+    private static final int POOR_RATIO = 900;
+    /**
+     * The probe interval of skipped messages
+     */
+    private static final int PROBE_INTERVAL = 64;
+
+    private final ConcurrentMap<Class<?>, Stat> stats = new ConcurrentHashMap<>();
+
+    /**
+     * The check the data type is worth compressing
+     *
+     * @param type data type
+     * @return true if worth compressing
+     */
+    public boolean isWorthy(Class<?> type) {
+        Stat stat = stats.get(type);
+        if (stat == null || stat.ratio <= POOR_RATIO) {
+            return true;
+        }
+
+        return stat.skipped.incrementAndGet() % PROBE_INTERVAL == 0;
+    }
+
+    /**
+     * The record a compression result
+     *
+     * @param type             data type
+     * @param length           raw length
+     * @param compressedLength compressed length
+     */
+    public void record(Class<?> type, int length, int compressedLength) {
+        if (length <= 0) {
+            return;
+        }
+
+        int ratio = (int) ((long) compressedLength * 1000 / length);
+        Stat stat = stats.computeIfAbsent(type, k -> new Stat(ratio));
+        // the moving average(weight 1/4), lost updates under race are harmless
+        stat.ratio += (ratio - stat.ratio) >> 2;
+    }
+
+    /**
+     * The compression stat of a data type
+     *
+     * @author lry
+     */
+    private static class Stat {
+
+        private volatile int ratio;
+        private final AtomicInteger skipped = new AtomicInteger(0);
+
+        private Stat(int ratio) {
+            this.ratio = ratio;
+        }
+
+    }
+
+}
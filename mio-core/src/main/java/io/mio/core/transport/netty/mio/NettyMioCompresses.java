@@ -0,0 +1,83 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import io.mio.core.MioException;
+import io.mio.core.compress.Compress;
+import io.mio.core.extension.ExtensionLoader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * NettyMioCompresses
+ * <p>
+ * The compress codecs indexed by codec id, resolved lazily when the first frame compressed by the codec arrives.
+ * <p>
+ * Tips：
+ * 1.Only the codecs used by the peers are instantiated, so the native lib of an unused codec(e.g. lz4, zstd) is never loaded.
+ * 2.The well-known codec is resolved by its extension name, the custom codec is found by scanning the other extensions.
+ *
+ * @author lry
+ */
+@Slf4j
+public class NettyMioCompresses {
+
+    /**
+     * The extension names of the well-known codecs indexed by codec id, the same as {@link Compress#getId()}
+     */
+    private static final List<String> NAMES = Arrays.asList(null, "gzip", "snappy", "lz4", "zstd");
+
+    private final AtomicReferenceArray<Compress> compresses = new AtomicReferenceArray<>(MioConstants.MAX_COMPRESS_ID + 1);
+
+    /**
+     * The get compress codec by codec id
+     *
+     * @param id codec id, in [1, {@link MioConstants#MAX_COMPRESS_ID}]
+     * @return {@link Compress}
+     * @throws MioException {@link MioException#UNKNOWN_COMPRESS} if no codec of the id is available
+     */
+    public Compress get(int id) {
+        Compress compress = compresses.get(id);
+        if (compress == null) {
+            // the extension is singleton, so the racing resolutions get the same one
+            compress = resolve(id);
+            compresses.set(id, compress);
+        }
+
+        return compress;
+    }
+
+    private static Compress resolve(int id) {
+        ExtensionLoader<Compress> loader = ExtensionLoader.getLoader(Compress.class);
+        if (id < NAMES.size()) {
+            try {
+                Compress compress = loader.getExtension(NAMES.get(id));
+                if (compress != null && compress.getId() == id) {
+                    return compress;
+                }
+            } catch (RuntimeException | LinkageError e) {
+                throw new MioException(MioException.UNKNOWN_COMPRESS, "Unavailable compress codec", id, e);
+            }
+        }
+
+        for (String name : loader.getExtensionNames()) {
+            if (NAMES.contains(name)) {
+                continue;
+            }
+
+            try {
+                Compress compress = loader.getExtension(name);
+                if (compress != null && compress.getId() == id) {
+                    return compress;
+                }
+            } catch (RuntimeException | LinkageError e) {
+                log.warn("Skip the unavailable compress codec: {}", name, e);
+            }
+        }
+
+        throw new MioException(MioException.UNKNOWN_COMPRESS, "Unknown compress codec id", id);
+    }
+
+}
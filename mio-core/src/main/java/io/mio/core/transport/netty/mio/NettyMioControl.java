@@ -0,0 +1,56 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * NettyMioControl
+ * <p>
+ * The control frame of mio protocol(since version 4), only the header with the flag, no attachment and data:
+ * 1.Written as the outbound message by {@link NettyMioControlEncoder}
+ * 2.Read as the user event(fireUserEventTriggered) by {@link NettyMioDecoder}, so it never reaches the processor
+ *
+ * @author lry
+ */
+@Getter
+@AllArgsConstructor
+public enum NettyMioControl {
+
+    /**
+     * The sender is going away(draining), stop sending new requests to the connection
+     */
+    GOAWAY(MioConstants.FLAG_GOAWAY),
+    /**
+     * The heartbeat, pinged by the client and answered by the server
+     */
+    HEARTBEAT(MioConstants.FLAG_HEARTBEAT);
+
+    /**
+     * All the flag bits of control frame
+     */
+    public static final byte CONTROL_FLAGS = MioConstants.FLAG_GOAWAY | MioConstants.FLAG_HEARTBEAT;
+
+    private final byte flag;
+
+    /**
+     * The control of the flag
+     *
+     * @param flag frame flag
+     * @return {@link NettyMioControl}, null if not a control frame
+     */
+    public static NettyMioControl valueOf(byte flag) {
+        if ((flag & CONTROL_FLAGS) == 0) {
+            return null;
+        }
+
+        for (NettyMioControl control : values()) {
+            if ((flag & control.flag) != 0) {
+                return control;
+            }
+        }
+
+        return null;
+    }
+
+}
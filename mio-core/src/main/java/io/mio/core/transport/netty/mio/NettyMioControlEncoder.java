@@ -0,0 +1,61 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToByteEncoder;
+import lombok.AllArgsConstructor;
+
+/**
+ * NettyMioControlEncoder
+ * <pre>
+ * ===================================================================================================================================
+ * [Control]：magic(1 byte) + version(1 byte) + flag(1 byte) + request id(8 byte, 0) + attachment length(4 byte, 0) + data length(4 byte, 0)
+ * ===================================================================================================================================
+ * </pre>
+ * <p>
+ * Tips：The control frame is only written to the known peer of version 4 or newer, the older does not know it.
+ *
+ * @author lry
+ */
+@AllArgsConstructor
+public class NettyMioControlEncoder extends MessageToByteEncoder<NettyMioControl> {
+
+    /**
+     * The max protocol version to write
+     */
+    private final byte version;
+
+    /**
+     * The check the control frame can be written to the peer of channel
+     *
+     * @param channel {@link Channel}
+     * @return true if both sides are version 4 or newer
+     */
+    public boolean isSupported(Channel channel) {
+        return getVersion(channel) >= MioConstants.PROTOCOL_VERSION_4;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, NettyMioControl msg, ByteBuf out) throws Exception {
+        byte version = getVersion(ctx.channel());
+        if (version < MioConstants.PROTOCOL_VERSION_4) {
+            return;
+        }
+
+        out.writeByte(MioConstants.MAGIC_DATA);
+        out.writeByte(version);
+        out.writeByte(msg.getFlag());
+        out.writeLong(0);
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    private byte getVersion(Channel channel) {
+        // the version of peer is unknown before reading any frame from it
+        Byte peerVersion = channel.attr(NettyMioDecoder.PEER_VERSION_KEY).get();
+        return peerVersion == null ? 0 : (byte) Math.min(this.version, peerVersion);
+    }
+
+}
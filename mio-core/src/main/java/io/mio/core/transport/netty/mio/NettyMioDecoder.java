@@ -1,22 +1,33 @@
 package io.mio.core.transport.netty.mio;
 
 import io.mio.core.MioConstants;
+import io.mio.core.MioException;
 import io.mio.core.MioMessage;
 import io.mio.core.compress.Compress;
 import io.mio.core.serialize.Serialize;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.AttributeKey;
 import lombok.AllArgsConstructor;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
  * NettyMioDecoder
  * <p>
  * ===================================================================================================================================
- * [Protocol]：magic(1 byte) + serialize(1 byte) + attachment length(4 byte) + data length(4 byte) + attachment(M byte) + data(N byte)
+ * [Protocol V1]：magic(1 byte) + version(1 byte) + attachment length(4 byte) + data length(4 byte) + attachment(M byte) + data(N byte)
+ * [Protocol V2]：magic(1 byte) + version(1 byte) + flag(1 byte) + request id(8 byte) + attachment length(4 byte) + data length(4 byte)
+ * + attachment(M byte) + data(N byte)
+ * [Protocol V3]：the same as V2, but the attachment is binary encoded by {@link NettyMioAttachments}
+ * [Protocol V4]：the same as V3, and the control frame is supported
+ * [Protocol V5]：the same as V4, and the attachment of the not OK message begins with its status(see {@link NettyMioAttachments})
+ * [Flag]：bit 0 is compressed, bit 1 is heartbeat control, bit 2 is going-away control, bit 3 is status,
+ * bit 4~7 is the compress codec id
  * ===================================================================================================================================
  * <p>
  * Tips：Decrypt the message flow to protocol data and add it to the online document
@@ -26,9 +37,18 @@ import java.util.List;
 @AllArgsConstructor
 public class NettyMioDecoder extends ByteToMessageDecoder {
 
+    /**
+     * The protocol version of the last frame read from the peer
+     */
+    public static final AttributeKey<Byte> PEER_VERSION_KEY = AttributeKey.valueOf("MIO_PEER_VERSION");
+
     private final int maxContentLength;
     private final Serialize serialize;
     private final Compress compress;
+    /**
+     * The compress codecs indexed by codec id, uncompress the data compressed by any known codec of the peer
+     */
+    private final NettyMioCompresses compresses;
 
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buffer, List<Object> out) throws Exception {
@@ -39,19 +59,13 @@ public class NettyMioDecoder extends ByteToMessageDecoder {
             return;
         }
 
-        // Step 2：防止socket字节流攻击,防止客户端传来的数据过大。且太大数据是不合理的(单位字节:byte)
-        if (buffer.readableBytes() > MioConstants.BASE_READ_LENGTH + maxContentLength) {
-            buffer.skipBytes(buffer.readableBytes());
-            return;
-        }
-
-        // Step 3：记录读包头开始的索引位置（原理:循环查找满足读的数据包头索引位置进行读取）
+        // Step 2：记录读包头开始的索引位置（原理:循环查找满足读的数据包头索引位置进行读取）
         int beginReaderIndex;
         while (true) {
-            // Step 3.1：获取包头开始的index
+            // Step 2.1：获取包头开始的index
             beginReaderIndex = buffer.readerIndex();
 
-            // Step 3.2：标记包头开始的index（把当前读指针保存起来）
+            // Step 2.2：标记包头开始的index（把当前读指针保存起来）
             buffer.markReaderIndex();
             if (buffer.readByte() == MioConstants.MAGIC_DATA) {
                 // 读到了协议的开始标志，则结束while循环
@@ -61,7 +75,7 @@ public class NettyMioDecoder extends ByteToMessageDecoder {
                 buffer.resetReaderIndex();
             }
 
-            // Step 3.3：未读到包头信息，则跳过一个字节后再去读取包头信息的开始标志(即逐一尝试去读取)
+            // Step 2.3：未读到包头信息，则跳过一个字节后再去读取包头信息的开始标志(即逐一尝试去读取)
             buffer.readByte();
             if (buffer.readableBytes() < MioConstants.BASE_READ_LENGTH) {
                 // 当跳过一个字节之后，数据包的长度如果变得不满足，则应该结束,等待后面的数据到达
@@ -69,39 +83,94 @@ public class NettyMioDecoder extends ByteToMessageDecoder {
             }
         }
 
-        // Step 4：Read version,length, and check content length
+        // Step 3：Read version and the extend header of version 2
         byte version = buffer.readByte();
+        // the frame of version 1 has no flag, and its data is always compressed
+        byte flag = MioConstants.FLAG_COMPRESSED;
+        long id = 0;
+        if (version >= MioConstants.PROTOCOL_VERSION_2) {
+            if (buffer.writerIndex() - beginReaderIndex < MioConstants.BASE_READ_LENGTH + MioConstants.EXTEND_READ_LENGTH) {
+                // Restore read pointer
+                buffer.readerIndex(beginReaderIndex);
+                return;
+            }
+
+            flag = buffer.readByte();
+            id = buffer.readLong();
+        }
+
+        // Step 4：Read length, and check content length
         int attachmentLength = buffer.readInt();
         int dataLength = buffer.readInt();
-        // 判断请求数据包的剩余数据是否到齐
-        if (buffer.readableBytes() < attachmentLength + dataLength) {
+        // Step 4.1：防止socket字节流攻击,防止客户端传来的数据过大。且太大数据是不合理的(单位字节:byte)
+        if (attachmentLength < 0 || dataLength < 0 || (long) attachmentLength + dataLength > maxContentLength) {
+            buffer.skipBytes(buffer.readableBytes());
+            throw new MioException(MioException.CONTENT_OUT_LIMIT, "The content out of limit",
+                    (long) attachmentLength + dataLength);
+        }
+        // Step 4.2：判断请求数据包的剩余数据是否到齐
+        if (buffer.readableBytes() < (long) attachmentLength + dataLength) {
             // Restore read pointer
             buffer.readerIndex(beginReaderIndex);
             return;
         }
 
-        // Step 5：Read attachments data
-        byte[] attachmentBytes = new byte[attachmentLength];
-        buffer.readBytes(attachmentBytes);
-
-        // Step 6：Read attachments data
-        byte[] dataBytes = new byte[dataLength];
-        buffer.readBytes(dataBytes);
+        // Step 4.3：the control frame is fired as the user event
+        NettyMioControl control = NettyMioControl.valueOf(flag);
+        if (control != null) {
+            buffer.skipBytes(attachmentLength + dataLength);
+            channel.attr(PEER_VERSION_KEY).set(version);
+            ctx.fireUserEventTriggered(control);
+            return;
+        }
 
-        // Step 7：uncompress data
-        if (compress != null) {
-            try {
-                dataBytes = compress.uncompress(dataBytes);
-            } catch (Exception e) {
-                e.printStackTrace();
+        // Step 5：Read status and attachments data
+        final MioMessage mioMessage = new MioMessage();
+        if (version >= MioConstants.PROTOCOL_VERSION_3) {
+            ByteBuf attachmentBuffer = buffer.readSlice(attachmentLength);
+            if (version >= MioConstants.PROTOCOL_VERSION_5 && (flag & MioConstants.FLAG_STATUS) != 0) {
+                NettyMioAttachments.decodeStatus(attachmentBuffer, mioMessage);
             }
+            NettyMioAttachments.decode(attachmentBuffer, mioMessage.getAttachments());
+        } else {
+            byte[] attachmentBytes = new byte[attachmentLength];
+            buffer.readBytes(attachmentBytes);
+            mioMessage.decodeAttachments(attachmentBytes);
+        }
+
+        // Step 6：Read data slice(zero-copy), it is consumed before decode returns so need not retain
+        ByteBuf dataBuffer = buffer.readSlice(dataLength);
+
+        // Step 7：uncompress and deserialize data from the slice stream directly
+        final Object data;
+        Compress codec = (flag & MioConstants.FLAG_COMPRESSED) == 0 ? null : getCompress(flag);
+        try (InputStream inputStream = codec == null ? new ByteBufInputStream(dataBuffer) :
+                codec.uncompress(dataBuffer, ctx.alloc(), maxContentLength)) {
+            data = serialize.deserialize(inputStream, Object.class);
         }
 
         // Step 8：build to output
-        final MioMessage mioMessage = serialize.deserialize(dataBytes, MioMessage.class);
-        mioMessage.decodeAttachments(attachmentBytes);
+        mioMessage.setId(id);
+        mioMessage.setData(data);
         mioMessage.wrapper(channel.localAddress(), channel.remoteAddress());
+        channel.attr(PEER_VERSION_KEY).set(version);
         out.add(mioMessage);
     }
 
-}
\ No newline at end of file
+    /**
+     * The get compress codec by the codec id of flag
+     *
+     * @param flag frame flag
+     * @return {@link Compress}, null if not configured compress
+     */
+    private Compress getCompress(byte flag) {
+        int id = (flag >>> MioConstants.FLAG_COMPRESS_ID_SHIFT) & MioConstants.MAX_COMPRESS_ID;
+        if (id == 0 || (compress != null && compress.getId() == id)) {
+            // the peer of old version, the codec without id, or the same codec as configured
+            return compress;
+        }
+
+        return compresses.get(id);
+    }
+
+}
@@ -6,65 +6,234 @@ import io.mio.core.MioMessage;
 import io.mio.core.compress.Compress;
 import io.mio.core.serialize.Serialize;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
-import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * NettyMioEncoder
  *
  * <pre>
  * ===================================================================================================================================
- * [Protocol]：magic(1 byte) + serialize(1 byte) + attachment length(4 byte) + data length(4 byte) + attachment(M byte) + data(N byte)
+ * [Protocol V1]：magic(1 byte) + version(1 byte) + attachment length(4 byte) + data length(4 byte) + attachment(M byte) + data(N byte)
+ * [Protocol V2]：magic(1 byte) + version(1 byte) + flag(1 byte) + request id(8 byte) + attachment length(4 byte) + data length(4 byte)
+ * + attachment(M byte) + data(N byte)
+ * [Protocol V3]：the same as V2, but the attachment is binary encoded by {@link NettyMioAttachments}
+ * [Protocol V4]：the same as V3, and the control frame is supported(see {@link NettyMioControlEncoder})
+ * [Protocol V5]：the same as V4, and the attachment of the not OK message begins with its status(see {@link NettyMioAttachments})
+ * [Flag]：bit 0 is compressed, bit 1 is heartbeat control and bit 2 is going-away control(see {@link NettyMioControlEncoder}),
+ * bit 3 is status, bit 4~7 is the compress codec id
  * ===================================================================================================================================
  * Consider:
  * 6.crc data(crc), cyclic redundancy detection.The XOR algorithm is used to
  * calculate whether the whole packet has errors during transmission
  * </pre>
  * <p>
- * Tips：Write protocol data to message flow.
+ * Tips：Write protocol data to message flow, and never write a version newer than the peer's.
+ * The frame encoded by {@link #encode(ByteBufAllocator, MioMessage, byte, ByteBuf)} can be shared by the channels.
  *
  * @author lry
  */
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class NettyMioEncoder extends MessageToByteEncoder<MioMessage> {
 
-    public static final int VERSION = 1;
+    /**
+     * The latest protocol version
+     */
+    public static final byte VERSION = MioConstants.PROTOCOL_VERSION_5;
+
+    /**
+     * The initial size hint of output buffer(byte)
+     */
+    private static final int INITIAL_SIZE_HINT = 256;
 
     private final int maxContentLength;
+    /**
+     * The max protocol version to write
+     */
+    private final byte version;
+    /**
+     * The data is only compressed when its length reaches this(byte)
+     */
+    private final int compressMinLength;
+    /**
+     * The compress level, negative is the default level of the codec
+     */
+    private final int compressLevel;
     private final Serialize serialize;
     private final Compress compress;
+    /**
+     * The compression ratio stats of adaptive mode, null if disabled
+     */
+    private final NettyMioCompressStats compressStats;
+
+    /**
+     * The moving average of recent encoded message size, used as the output buffer size hint
+     * <p>
+     * Tips: the encoder is not shared, so it is only accessed by the event loop of its channel
+     */
+    private int sizeHint = INITIAL_SIZE_HINT;
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, MioMessage msg, boolean preferDirect) throws Exception {
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(sizeHint);
+        } else {
+            return ctx.alloc().heapBuffer(sizeHint);
+        }
+    }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, final MioMessage msg, ByteBuf out) throws Exception {
-        byte[] attachmentBytes = msg.encodeAttachments();
-        byte[] dataBytes = serialize.serialize(msg.getData());
+        // wrapper local and remote address
+        final Channel channel = ctx.channel();
+        msg.wrapper(channel.localAddress(), channel.remoteAddress());
+        encode(ctx.alloc(), msg, getVersion(channel), out);
+    }
+
+    /**
+     * The protocol version to write to the channel: answer an older peer with its own version
+     * <p>
+     * Tips：The version is always in [1, {@link #VERSION}], the unknown old version is read as version 1 by the
+     * decoder, so it is answered with version 1.
+     *
+     * @param channel {@link Channel}
+     * @return protocol version
+     */
+    public byte getVersion(Channel channel) {
+        Byte peerVersion = channel.attr(NettyMioDecoder.PEER_VERSION_KEY).get();
+        int version = peerVersion == null ? this.version : Math.min(this.version, peerVersion);
+        return (byte) Math.max(MioConstants.PROTOCOL_VERSION_1, Math.min(VERSION, version));
+    }
+
+    /**
+     * The encode message into the frame of the version, which is not bound to any channel
+     *
+     * @param alloc   {@link ByteBufAllocator}
+     * @param msg     {@link MioMessage}
+     * @param version protocol version
+     * @param out     {@link ByteBuf}
+     * @throws Exception exception {@link Exception}
+     */
+    public void encode(ByteBufAllocator alloc, final MioMessage msg, byte version, ByteBuf out) throws Exception {
+        int beginWriterIndex = out.writerIndex();
+        // Step 1：write magic
+        out.writeByte(MioConstants.MAGIC_DATA);
+        // Step 2：write version
+        out.writeByte(version);
+        int flagWriterIndex = out.writerIndex();
+        if (version >= MioConstants.PROTOCOL_VERSION_2) {
+            // Step 2.1：write flag placeholder, back-patched after writing
+            out.writeByte(0);
+            // Step 2.2：write request id
+            out.writeLong(msg.getId());
+        }
+
+        // Step 3：write attachment length and data length placeholder, back-patched after writing
+        int lengthWriterIndex = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(0);
+
+        // Step 4：write status and attachment
+        byte flag = 0;
+        int attachmentWriterIndex = out.writerIndex();
+        if (version >= MioConstants.PROTOCOL_VERSION_5 && (msg.getCode() != MioMessage.OK || msg.getError() != null)) {
+            flag |= MioConstants.FLAG_STATUS;
+            NettyMioAttachments.encodeStatus(msg.getCode(), msg.getError(), out);
+        }
+        if (version >= MioConstants.PROTOCOL_VERSION_3) {
+            NettyMioAttachments.encode(msg.getAttachments(), out);
+        } else {
+            out.writeBytes(msg.encodeAttachments());
+        }
+
+        // Step 5：serialize data into the output buffer directly
+        int dataWriterIndex = out.writerIndex();
+        try (OutputStream outputStream = new ByteBufOutputStream(out)) {
+            serialize.serialize(msg.getData(), outputStream);
+        }
+
+        // Step 6：compress data(the frame of version 1 has no flag, so it is always compressed)
         if (compress != null) {
-            dataBytes = compress.compress(dataBytes);
+            boolean force = version < MioConstants.PROTOCOL_VERSION_2;
+            if (force || isCompressWorthy(msg.getData(), out.writerIndex() - dataWriterIndex)) {
+                if (compress(alloc, out, dataWriterIndex, msg.getData(), force)) {
+                    flag |= MioConstants.FLAG_COMPRESSED | compress.getId() << MioConstants.FLAG_COMPRESS_ID_SHIFT;
+                }
+            }
         }
 
-        int contentLength = attachmentBytes.length + dataBytes.length;
+        int attachmentLength = dataWriterIndex - attachmentWriterIndex;
+        int dataLength = out.writerIndex() - dataWriterIndex;
+        int contentLength = attachmentLength + dataLength;
         if (contentLength > maxContentLength) {
             throw new MioException(MioException.CONTENT_OUT_LIMIT, "The content out of limit", contentLength);
         }
 
-        // wrapper local and remote address
-        final Channel channel = ctx.channel();
-        msg.wrapper(channel.localAddress(), channel.remoteAddress());
+        // Step 7：back-patch flag, attachment length and data length
+        if (version >= MioConstants.PROTOCOL_VERSION_2) {
+            out.setByte(flagWriterIndex, flag);
+        }
+        out.setInt(lengthWriterIndex, attachmentLength);
+        out.setInt(lengthWriterIndex + 4, dataLength);
 
-        // Step 1：write magic
-        out.writeByte(MioConstants.MAGIC_DATA);
-        // Step 2：write serialize
-        out.writeByte(VERSION);
-        // Step 3：write attachment length
-        out.writeInt(attachmentBytes.length);
-        // Step 4：write data length
-        out.writeInt(dataBytes.length);
-        // Step 5：write attachment
-        out.writeBytes(attachmentBytes);
-        // Step 6：write data
-        out.writeBytes(dataBytes);
+        // Step 8：the moving average(weight 1/8) of encoded size for the next allocation
+        sizeHint += (out.writerIndex() - beginWriterIndex - sizeHint) >> 3;
+    }
+
+    /**
+     * The check data is worth compressing: reach min length, and not poor ratio in adaptive mode
+     *
+     * @param data       data
+     * @param dataLength serialized data length
+     * @return true if worth compressing
+     */
+    private boolean isCompressWorthy(Object data, int dataLength) {
+        if (data == null || dataLength < compressMinLength) {
+            return false;
+        }
+
+        return compressStats == null || compressStats.isWorthy(data.getClass());
+    }
+
+    /**
+     * The compress the serialized data in place
+     *
+     * @param alloc           {@link ByteBufAllocator}
+     * @param out             {@link ByteBuf}
+     * @param dataWriterIndex the writer index of data begin
+     * @param data            data
+     * @param force           true if keep compressed data even it is not smaller
+     * @return true if the data is replaced by compressed data
+     * @throws IOException exception {@link IOException}
+     */
+    private boolean compress(ByteBufAllocator alloc, ByteBuf out, int dataWriterIndex,
+                             Object data, boolean force) throws IOException {
+        int dataLength = out.writerIndex() - dataWriterIndex;
+        ByteBuf compressed = alloc.buffer(dataLength);
+        try {
+            compress.compress(out.slice(dataWriterIndex, dataLength), compressed, compressLevel);
+
+            int compressedLength = compressed.readableBytes();
+            if (compressStats != null && data != null) {
+                compressStats.record(data.getClass(), dataLength, compressedLength);
+            }
+            if (!force && compressedLength >= dataLength) {
+                return false;
+            }
+
+            out.writerIndex(dataWriterIndex);
+            out.writeBytes(compressed);
+            return true;
+        } finally {
+            compressed.release();
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -1,9 +1,14 @@
 package io.mio.core.transport.netty.mio;
 
+import io.mio.core.MioMessage;
 import io.mio.core.compress.Compress;
 import io.mio.core.extension.Extension;
 import io.mio.core.serialize.Serialize;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.ServerConfig;
 import io.mio.core.transport.netty.NettyInitializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
 
 /**
@@ -14,18 +19,90 @@ import io.netty.channel.ChannelPipeline;
 @Extension("mio")
 public class NettyMioInitializer implements NettyInitializer {
 
+    /**
+     * The compression ratio stats shared by all channels of the server or client
+     */
+    private final NettyMioCompressStats compressStats = new NettyMioCompressStats();
+    /**
+     * The compress codecs indexed by codec id, resolved lazily
+     */
+    private final NettyMioCompresses compresses = new NettyMioCompresses();
+
     @Override
-    public void server(int maxContentLength, Serialize serialize, Compress compress, Object attachment) {
+    public void server(ServerConfig serverConfig, Serialize serialize, Compress compress, Object attachment) {
         ChannelPipeline ch = (ChannelPipeline) attachment;
-        ch.addLast(new NettyMioDecoder(maxContentLength, serialize, compress));
-        ch.addLast(new NettyMioEncoder(maxContentLength, serialize, compress));
+        ch.addLast(new NettyMioDecoder(serverConfig.getMaxContentLength(), serialize, compress, compresses));
+        ch.addLast(new NettyMioEncoder(serverConfig.getMaxContentLength(), serverConfig.getVersion(),
+                serverConfig.getCompressMinLength(), serverConfig.getCompressLevel(), serialize, compress,
+                serverConfig.isAdaptiveCompress() ? compressStats : null));
+        ch.addLast(new NettyMioControlEncoder(serverConfig.getVersion()));
     }
 
     @Override
-    public void client(int maxContentLength, Serialize serialize, Compress compress, Object attachment) {
+    public void client(ClientConfig clientConfig, Serialize serialize, Compress compress, Object attachment) {
         ChannelPipeline ch = (ChannelPipeline) attachment;
-        ch.addLast(new NettyMioEncoder(maxContentLength, serialize, compress));
-        ch.addLast(new NettyMioDecoder(maxContentLength, serialize, compress));
+        ch.addLast(new NettyMioEncoder(clientConfig.getMaxContentLength(), clientConfig.getVersion(),
+                clientConfig.getCompressMinLength(), clientConfig.getCompressLevel(), serialize, compress,
+                clientConfig.isAdaptiveCompress() ? compressStats : null));
+        ch.addLast(new NettyMioControlEncoder(clientConfig.getVersion()));
+        ch.addLast(new NettyMioDecoder(clientConfig.getMaxContentLength(), serialize, compress, compresses));
+    }
+
+    @Override
+    public void goAway(Channel channel) {
+        channel.writeAndFlush(NettyMioControl.GOAWAY, channel.voidPromise());
+    }
+
+    @Override
+    public boolean heartbeat(Channel channel) {
+        NettyMioControlEncoder controlEncoder = channel.pipeline().get(NettyMioControlEncoder.class);
+        if (controlEncoder == null || !controlEncoder.isSupported(channel)) {
+            return false;
+        }
+
+        channel.writeAndFlush(NettyMioControl.HEARTBEAT, channel.voidPromise());
+        return true;
+    }
+
+    /**
+     * The serialize and compress the message only once for each protocol version, and write the retained duplicates
+     * of the shared frame to the channels
+     */
+    @Override
+    public int broadcast(ServerConfig serverConfig, Serialize serialize, Compress compress,
+                         Iterable<Channel> channels, MioMessage message) throws Exception {
+        NettyMioEncoder encoder = new NettyMioEncoder(serverConfig.getMaxContentLength(), serverConfig.getVersion(),
+                serverConfig.getCompressMinLength(), serverConfig.getCompressLevel(), serialize, compress,
+                serverConfig.isAdaptiveCompress() ? compressStats : null);
+        ByteBuf[] frames = new ByteBuf[NettyMioEncoder.VERSION + 1];
+        int count = 0;
+        try {
+            for (Channel channel : channels) {
+                // skip the slow consumer, instead of growing its outbound buffer
+                if (!channel.isActive() || !channel.isWritable()) {
+                    continue;
+                }
+
+                // the version is in [1, VERSION], so it always has a slot
+                byte version = encoder.getVersion(channel);
+                ByteBuf frame = frames[version];
+                if (frame == null) {
+                    frame = frames[version] = channel.alloc().ioBuffer();
+                    encoder.encode(channel.alloc(), message, version, frame);
+                }
+
+                channel.writeAndFlush(frame.retainedDuplicate(), channel.voidPromise());
+                count++;
+            }
+        } finally {
+            for (ByteBuf frame : frames) {
+                if (frame != null) {
+                    frame.release();
+                }
+            }
+        }
+
+        return count;
     }
 
 }
@@ -0,0 +1,74 @@
+package io.mio.core;
+
+import io.mio.core.compress.Compress;
+import io.mio.core.extension.ExtensionLoader;
+import io.mio.core.serialize.Serialize;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compress codec benchmark on the serialized message data
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressBenchmark {
+
+    @Param({"gzip", "snappy", "lz4", "zstd"})
+    private String codec;
+    @Param({"1024", "16384", "262144"})
+    private int size;
+
+    private Compress compress;
+    private byte[] data;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() throws Exception {
+        compress = ExtensionLoader.getLoader(Compress.class).getExtension(codec);
+        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; rows.size() * 64 < size; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("name", "mio-user-" + i);
+            row.put("email", "mio-user-" + i + "@mio.io");
+            row.put("score", i * 0.75D);
+            rows.add(row);
+        }
+        data = serialize.serialize(rows);
+        compressed = compress.compress(data);
+        System.out.printf("%n%s: %d -> %d bytes, ratio %.3f%n", codec, data.length, compressed.length,
+                (double) compressed.length / data.length);
+    }
+
+    @Benchmark
+    public byte[] compress() throws Exception {
+        return compress.compress(data);
+    }
+
+    @Benchmark
+    public byte[] uncompress() throws Exception {
+        return compress.uncompress(compressed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().include(CompressBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.mio.core;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.mio.core.extension.ExtensionLoader;
+import io.mio.core.serialize.ProtobufSerialize;
+import io.mio.core.serialize.Serialize;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The serialize benchmark on the same message body
+ * <p>
+ * Tips: the protobuf body is a {@link Struct} holding the same fields as the map body of others.
+ *
+ * @author lry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializeBenchmark {
+
+    @Param({"hessian2", "protobuf", "kryo"})
+    private String serializeName;
+    @Param({"1", "16"})
+    private int rows;
+
+    private Serialize serialize;
+    private Object body;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws Exception {
+        serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serializeName);
+        ProtobufSerialize.register(1, Struct.class);
+
+        if ("protobuf".equals(serializeName)) {
+            ListValue.Builder list = ListValue.newBuilder();
+            for (int i = 0; i < rows; i++) {
+                list.addValues(Value.newBuilder().setStructValue(Struct.newBuilder()
+                        .putFields("id", Value.newBuilder().setNumberValue(i).build())
+                        .putFields("name", Value.newBuilder().setStringValue("mio-user-" + i).build())
+                        .putFields("email", Value.newBuilder().setStringValue("mio-user-" + i + "@mio.io").build())
+                        .putFields("score", Value.newBuilder().setNumberValue(i * 0.75D).build())));
+            }
+            body = Struct.newBuilder().putFields("rows", Value.newBuilder().setListValue(list).build()).build();
+        } else {
+            List<Map<String, Object>> list = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("id", (double) i);
+                row.put("name", "mio-user-" + i);
+                row.put("email", "mio-user-" + i + "@mio.io");
+                row.put("score", i * 0.75D);
+                list.add(row);
+            }
+            Map<String, Object> map = new HashMap<>();
+            map.put("rows", list);
+            body = map;
+        }
+
+        data = serialize.serialize(body);
+        System.out.printf("%n%s: %d rows -> %d bytes%n", serializeName, rows, data.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return serialize.serialize(body);
+    }
+
+    @Benchmark
+    public Object deserialize() throws Exception {
+        return serialize.deserialize(data, Object.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder().include(SerializeBenchmark.class.getSimpleName()).build();
+        new Runner(options).run();
+    }
+
+}
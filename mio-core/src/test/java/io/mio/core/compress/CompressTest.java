@@ -0,0 +1,190 @@
+package io.mio.core.compress;
+
+import io.mio.core.extension.ExtensionLoader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+public class CompressTest {
+
+    private static final String[] NAMES = {"gzip", "snappy", "lz4", "zstd"};
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        // empty, small, over a snappy chunk(32767 bytes), and incompressible
+        byte[][] samples = {new byte[0], "mio".getBytes(), text(32 * 1024 + 1), text(256 * 1024), random(64 * 1024)};
+        for (String name : NAMES) {
+            Compress compress = getCompress(name);
+            for (byte[] sample : samples) {
+                String message = name + ":" + sample.length;
+                Assert.assertArrayEquals(message, sample, compress.uncompress(compress.compress(sample)));
+
+                // the buffer api
+                ByteBuf out = Unpooled.buffer();
+                try {
+                    compress.compress(Unpooled.wrappedBuffer(sample), out, -1);
+                    Assert.assertArrayEquals(message, sample,
+                            readFully(compress.uncompress(out, ByteBufAllocator.DEFAULT, sample.length)));
+                } finally {
+                    out.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        byte[] garbage = random(1024);
+        for (String name : NAMES) {
+            Compress compress = getCompress(name);
+            try {
+                compress.uncompress(garbage);
+                Assert.fail(name + " uncompressed the malformed data");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        byte[] data = text(64 * 1024);
+        for (String name : NAMES) {
+            Compress compress = getCompress(name);
+            byte[] compressed = compress.compress(data);
+            for (int length : new int[]{1, compressed.length / 2, compressed.length - 1}) {
+                try {
+                    compress.uncompress(Arrays.copyOf(compressed, length));
+                    Assert.fail(name + " uncompressed the truncated data: " + length);
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfMaxLength() throws Exception {
+        // the text, and the highly compressible zeros far out of the max length
+        byte[][] samples = {text(64 * 1024), new byte[16 * 1024 * 1024]};
+        int[] maxLengths = {64 * 1024 - 1, 1024 * 1024};
+        for (String name : NAMES) {
+            Compress compress = getCompress(name);
+            for (int i = 0; i < samples.length; i++) {
+                ByteBuf in = Unpooled.wrappedBuffer(compress.compress(samples[i]));
+                try {
+                    readFully(compress.uncompress(in, ByteBufAllocator.DEFAULT, maxLengths[i]));
+                    Assert.fail(name + " uncompressed the data out of max length: " + maxLengths[i]);
+                } catch (IOException e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLz4DeclaredLengthOutOfMaxLength() throws Exception {
+        // the declared raw length(64mb) is in the max ratio of the body, but out of the max length
+        ByteBuf in = Unpooled.buffer();
+        in.writeInt(64 * 1024 * 1024);
+        in.writeBytes(new byte[1024 * 1024]);
+        getCompress("lz4").uncompress(in, ByteBufAllocator.DEFAULT, 1024 * 1024);
+    }
+
+    @Test(expected = IOException.class)
+    public void testSnappyDeclaredLengthOutOfChunk() throws Exception {
+        // a chunk declares the raw length of 128mb by the varint preamble
+        ByteBuf in = Unpooled.buffer();
+        in.writeInt(8);
+        in.writeBytes(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, 0x40, 0, 0, 0, 0});
+        getCompress("snappy").uncompress(in, ByteBufAllocator.DEFAULT, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testGzipInterop() throws Exception {
+        Compress gzip = getCompress("gzip");
+        for (byte[] sample : new byte[][]{new byte[0], "mio".getBytes(), text(256 * 1024), random(64 * 1024)}) {
+            String message = "gzip:" + sample.length;
+            // mio -> jdk
+            Assert.assertArrayEquals(message, sample,
+                    readFully(new GZIPInputStream(new ByteArrayInputStream(gzip.compress(sample)))));
+
+            // jdk -> mio
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(out)) {
+                gzipOutputStream.write(sample);
+            }
+            Assert.assertArrayEquals(message, sample, gzip.uncompress(out.toByteArray()));
+            Assert.assertArrayEquals(message, sample, readFully(gzip.uncompress(
+                    Unpooled.wrappedBuffer(out.toByteArray()), ByteBufAllocator.DEFAULT, sample.length)));
+        }
+    }
+
+    @Test
+    public void testGzipCorruptTrailer() throws Exception {
+        Compress gzip = getCompress("gzip");
+        byte[] data = text(64 * 1024);
+        byte[] compressed = gzip.compress(data);
+        // the crc32(-8) and the input size(-4) of the trailer
+        for (int index : new int[]{compressed.length - 8, compressed.length - 4}) {
+            byte[] corrupted = compressed.clone();
+            corrupted[index] ^= 0x01;
+            try {
+                gzip.uncompress(corrupted);
+                Assert.fail("gzip uncompressed the corrupt trailer: " + index);
+            } catch (ZipException e) {
+                Assert.assertEquals("Corrupt gzip trailer", e.getMessage());
+            }
+        }
+
+        // the pooled codec is reset after the failure
+        Assert.assertArrayEquals(data, gzip.uncompress(compressed));
+    }
+
+    private static Compress getCompress(String name) {
+        Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(name);
+        Assert.assertNotNull(name, compress);
+        return compress;
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int n;
+            byte[] buffer = new byte[2048];
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] text(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) ('a' + (i * 7 + i / 13) % 26);
+        }
+
+        return bytes;
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.mio.core.serialize;
+
+import io.mio.core.extension.ExtensionLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class Hessian2SerializeTest {
+
+    private final Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension("hessian2");
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("string", "mio");
+        map.put("long", Long.MAX_VALUE);
+        map.put("list", Arrays.asList("a", 1, 0.5D));
+
+        Assert.assertEquals(map, serialize.deserialize(serialize.serialize(map), Map.class));
+        Assert.assertNull(serialize.deserialize(serialize.serialize(null), Object.class));
+        Assert.assertArrayEquals(new byte[0], serialize.deserialize(serialize.serialize(new byte[0]), byte[].class));
+    }
+
+    /**
+     * The bytes left in the reused input by the malformed message never break the next message of the thread
+     */
+    @Test
+    public void testValidAfterTruncated() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", "value");
+        map.put("long", Long.MAX_VALUE);
+        map.put("double", 0.5D);
+        byte[] data = serialize.serialize(map);
+
+        for (int length = 1; length < data.length; length++) {
+            try {
+                serialize.deserialize(Arrays.copyOf(data, length), Object.class);
+                Assert.fail("read the truncated data: " + length);
+            } catch (IOException | RuntimeException e) {
+                // expected
+            }
+
+            Assert.assertEquals("after truncated: " + length, map, serialize.deserialize(data, Map.class));
+        }
+    }
+
+    @Test
+    public void testValidAfterTrailingBytes() throws Exception {
+        byte[] data = serialize.serialize("mio");
+        byte[] trailing = Arrays.copyOf(data, data.length + 8);
+        Assert.assertEquals("mio", serialize.deserialize(trailing, String.class));
+        Assert.assertEquals("mio", serialize.deserialize(data, String.class));
+    }
+
+}
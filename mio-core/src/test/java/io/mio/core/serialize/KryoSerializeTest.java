@@ -0,0 +1,112 @@
+package io.mio.core.serialize;
+
+import io.mio.core.extension.ExtensionLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KryoSerializeTest {
+
+    private final Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension("kryo");
+
+    @After
+    public void after() {
+        KryoSerialize.setAllowClassName(false);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("string", "mio");
+        map.put("long", Long.MAX_VALUE);
+        map.put("bytes", new byte[]{1, 2, 3});
+        List<Object> list = new ArrayList<>(Arrays.asList("a", 1, 0.5D));
+        map.put("list", list);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> result = serialize.deserialize(serialize.serialize(map), Map.class);
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) result.remove("bytes"));
+        map.remove("bytes");
+        Assert.assertEquals(map, result);
+
+        Assert.assertNull(serialize.deserialize(serialize.serialize(null), Object.class));
+        Assert.assertArrayEquals(new byte[0], serialize.deserialize(serialize.serialize(new byte[0]), byte[].class));
+    }
+
+    @Test
+    public void testLargeData() throws Exception {
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        Assert.assertArrayEquals(data, serialize.deserialize(serialize.serialize(data), byte[].class));
+    }
+
+    @Test
+    public void testRegistered() throws Exception {
+        KryoSerialize.register(RegisteredBean.class, 200);
+        RegisteredBean bean = new RegisteredBean();
+        bean.name = "mio";
+
+        RegisteredBean result = serialize.deserialize(serialize.serialize(bean), RegisteredBean.class);
+        Assert.assertEquals("mio", result.name);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnregisteredWriteRejected() throws Exception {
+        serialize.serialize(new UnregisteredBean());
+    }
+
+    @Test
+    public void testUnregisteredClassNameRejected() throws Exception {
+        KryoSerialize.setAllowClassName(true);
+        byte[] data = serialize.serialize(new UnregisteredBean());
+        KryoSerialize.setAllowClassName(false);
+
+        try {
+            serialize.deserialize(data, Object.class);
+            Assert.fail("read the unregistered class name");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Unregistered"));
+        }
+
+        // the opt-in accepts the class name
+        KryoSerialize.setAllowClassName(true);
+        Assert.assertTrue(serialize.deserialize(data, Object.class) instanceof UnregisteredBean);
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", "value");
+        byte[] data = serialize.serialize(map);
+
+        for (int length = 1; length < data.length; length++) {
+            try {
+                serialize.deserialize(new ByteArrayInputStream(data, 0, length), Object.class);
+                Assert.fail("read the truncated data: " + length);
+            } catch (RuntimeException e) {
+                // expected
+            }
+        }
+    }
+
+    public static class RegisteredBean {
+        private String name;
+    }
+
+    public static class UnregisteredBean implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int value = 1;
+    }
+
+}
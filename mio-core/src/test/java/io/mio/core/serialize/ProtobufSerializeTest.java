@@ -0,0 +1,127 @@
+package io.mio.core.serialize;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.mio.core.extension.ExtensionLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ProtobufSerializeTest {
+
+    private final Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension("protobuf");
+
+    @After
+    public void after() {
+        ProtobufSerialize.setAllowClassName(false);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ProtobufSerialize.register(1, Struct.class);
+        Struct struct = Struct.newBuilder()
+                .putFields("name", Value.newBuilder().setStringValue("mio").build())
+                .putFields("score", Value.newBuilder().setNumberValue(0.5D).build())
+                .build();
+        Assert.assertEquals(struct, serialize.deserialize(serialize.serialize(struct), Struct.class));
+        Assert.assertEquals(Struct.getDefaultInstance(),
+                serialize.deserialize(serialize.serialize(Struct.getDefaultInstance()), Struct.class));
+
+        Assert.assertNull(serialize.deserialize(serialize.serialize(null), Object.class));
+        Assert.assertEquals("", serialize.deserialize(serialize.serialize(""), String.class));
+        Assert.assertArrayEquals(new byte[0], serialize.deserialize(serialize.serialize(new byte[0]), byte[].class));
+    }
+
+    @Test
+    public void testLargeData() throws Exception {
+        ProtobufSerialize.register(1, Struct.class);
+        byte[] data = new byte[64 * 1024];
+        Arrays.fill(data, (byte) 'a');
+        Assert.assertArrayEquals(data, serialize.deserialize(serialize.serialize(data), byte[].class));
+
+        Struct struct = Struct.newBuilder()
+                .putFields("data", Value.newBuilder().setStringValue(new String(data)).build())
+                .build();
+        Assert.assertEquals(struct, serialize.deserialize(serialize.serialize(struct), Struct.class));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnregisteredWriteRejected() throws Exception {
+        serialize.serialize(Int64Value.newBuilder().setValue(1).build());
+    }
+
+    @Test
+    public void testUnregisteredClassNameRejected() throws Exception {
+        ProtobufSerialize.setAllowClassName(true);
+        Int64Value value = Int64Value.newBuilder().setValue(1).build();
+        byte[] data = serialize.serialize(value);
+        ProtobufSerialize.setAllowClassName(false);
+
+        try {
+            serialize.deserialize(data, Object.class);
+            Assert.fail("read the unregistered class name");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unregistered"));
+        }
+
+        // the opt-in accepts the message class name
+        ProtobufSerialize.setAllowClassName(true);
+        Assert.assertEquals(value, serialize.deserialize(data, Object.class));
+    }
+
+    @Test
+    public void testNotMessageClassNameRejected() throws Exception {
+        ProtobufSerialize.setAllowClassName(true);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(bos);
+        // TYPE_MESSAGE + a class name which is not a message
+        out.writeRawByte(4);
+        out.writeStringNoTag(ByteString.class.getName());
+        out.flush();
+
+        try {
+            serialize.deserialize(bos.toByteArray(), Object.class);
+            Assert.fail("read the class which is not a message");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Not a protobuf message type"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownIdRejected() throws Exception {
+        // TYPE_REGISTERED + an id never registered
+        serialize.deserialize(new byte[]{3, 0x7F}, Object.class);
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        ProtobufSerialize.register(1, Struct.class);
+        Struct struct = Struct.newBuilder()
+                .putFields("name", Value.newBuilder().setStringValue("mio").build())
+                .build();
+        for (Object object : new Object[]{"mio", new byte[]{1, 2, 3}, struct}) {
+            byte[] data = serialize.serialize(object);
+            try {
+                serialize.deserialize(Arrays.copyOf(data, data.length - 1), Object.class);
+                Assert.fail("read the truncated data: " + object);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        try {
+            serialize.deserialize(new byte[0], Object.class);
+            Assert.fail("read the empty data");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package io.mio.core.transport.netty;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveLimiterTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testLightLoadKeepsLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(200, 20, 1000);
+        for (int i = 0; i < 1000; i++) {
+            limiter.update(RTT, 4);
+        }
+
+        Assert.assertEquals(200, limiter.getLimit());
+        // the burst after the light phase is not rejected
+        List<AdaptiveLimiter.Listener> listeners = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            AdaptiveLimiter.Listener listener = limiter.acquire();
+            Assert.assertNotNull(listener);
+            listeners.add(listener);
+        }
+
+        listeners.forEach(AdaptiveLimiter.Listener::onIgnore);
+        Assert.assertEquals(0, limiter.getInflight());
+    }
+
+    @Test
+    public void testLimitRecoversAfterLightLoad() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(200, 20, 1000);
+        // warm up the long rtt, then the queueing under high load shrinks the limit
+        for (int i = 0; i < 600; i++) {
+            limiter.update(RTT, limiter.getLimit());
+        }
+        for (int i = 0; i < 200; i++) {
+            limiter.update(RTT * 10, limiter.getLimit());
+        }
+        int shrunk = limiter.getLimit();
+        Assert.assertTrue("limit=" + shrunk, shrunk < 100);
+
+        // light phase
+        for (int i = 0; i < 1000; i++) {
+            limiter.update(RTT, 4);
+        }
+        Assert.assertEquals(shrunk, limiter.getLimit());
+
+        // burst with the healthy rtt
+        for (int i = 0; i < 200; i++) {
+            limiter.update(RTT, limiter.getLimit());
+        }
+        Assert.assertTrue("limit=" + limiter.getLimit(), limiter.getLimit() > 200);
+    }
+
+}
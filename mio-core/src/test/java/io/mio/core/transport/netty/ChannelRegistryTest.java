@@ -0,0 +1,61 @@
+package io.mio.core.transport.netty;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ChannelRegistryTest {
+
+    @Test
+    public void testGrowUpToCapacity() {
+        ChannelRegistry registry = new ChannelRegistry(200);
+        List<Channel> channels = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < registry.capacity(); i++) {
+            Channel channel = new EmbeddedChannel();
+            long id = registry.register(channel);
+            Assert.assertNotEquals(0, id);
+            channels.add(channel);
+            ids.add(id);
+        }
+
+        // full
+        Assert.assertEquals(0, registry.register(new EmbeddedChannel()));
+        Assert.assertEquals(200, registry.size());
+        for (int i = 0; i < channels.size(); i++) {
+            Assert.assertSame(channels.get(i), registry.get(ids.get(i)));
+        }
+
+        Set<Channel> iterated = new HashSet<>();
+        registry.forEach(iterated::add);
+        Assert.assertEquals(new HashSet<>(channels), iterated);
+    }
+
+    @Test
+    public void testReuseReleasedSlot() {
+        ChannelRegistry registry = new ChannelRegistry(2);
+        Channel first = new EmbeddedChannel();
+        long firstId = registry.register(first);
+        Assert.assertNotEquals(0, registry.register(new EmbeddedChannel()));
+        Assert.assertTrue(registry.unregister(first));
+        Assert.assertFalse(registry.unregister(first));
+
+        // the released slot is reused with a new generation, the closed id never finds the new channel
+        Channel second = new EmbeddedChannel();
+        long secondId = registry.register(second);
+        Assert.assertEquals((int) firstId, (int) secondId);
+        Assert.assertNotEquals(firstId, secondId);
+        Assert.assertNull(registry.get(firstId));
+        Assert.assertSame(second, registry.get(secondId));
+        Assert.assertEquals(secondId, ChannelRegistry.getConnectionId(second));
+        Assert.assertNull(registry.get(0));
+        Assert.assertNull(registry.get(1L << 32 | 100));
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.mio.core.transport.netty;
+
+import io.mio.core.MioMessage;
+import io.mio.core.MioProcessor;
+import io.mio.core.compress.Compress;
+import io.mio.core.extension.ExtensionLoader;
+import io.mio.core.serialize.Serialize;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.ServerConfig;
+import io.mio.core.transport.netty.mio.NettyMioInitializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class FlushConsolidationTest {
+
+    private static final int REQUESTS = 10;
+
+    @Test
+    public void testFlushPerResponseWithoutConsolidation() {
+        Assert.assertEquals(REQUESTS, pipelinedFlushes(0));
+    }
+
+    @Test
+    public void testFlushOnceInReadBatch() {
+        Assert.assertEquals(1, pipelinedFlushes(256));
+    }
+
+    @Test
+    public void testFlushAfterConsolidations() {
+        // every 4 flushes in the read batch, then the rest on read complete
+        Assert.assertEquals(3, pipelinedFlushes(4));
+    }
+
+    /**
+     * The pipelined requests in one read batch are replied inline, count the flushes reaching the socket
+     *
+     * @param flushConsolidations {@link ServerConfig#getFlushConsolidations()}
+     * @return the number of flushes
+     */
+    private static int pipelinedFlushes(int flushConsolidations) {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setFlushConsolidations(flushConsolidations);
+        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
+        Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(serverConfig.getCompress());
+        NettyMioInitializer initializer = new NettyMioInitializer();
+        NettyMioServerHandler serverHandler = new NettyMioServerHandler(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public boolean isNonBlocking() {
+                return true;
+            }
+
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        }, initializer);
+
+        // the same pipeline as the server channel
+        AtomicInteger flushes = new AtomicInteger(0);
+        EmbeddedChannel server = newInetChannel();
+        server.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                flushes.incrementAndGet();
+                super.flush(ctx);
+            }
+        });
+        if (serverConfig.getFlushConsolidations() > 0) {
+            server.pipeline().addLast(new FlushConsolidationHandler(serverConfig.getFlushConsolidations(), true));
+        }
+        initializer.server(serverConfig, serialize, compress, server.pipeline());
+        server.pipeline().addLast(serverHandler);
+
+        EmbeddedChannel client = newInetChannel();
+        initializer.client(new ClientConfig(), serialize, compress, client.pipeline());
+        Object[] frames = new Object[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            Assert.assertTrue(client.writeOutbound(new MioMessage(("flush-" + i).getBytes(), null)));
+            frames[i] = client.readOutbound();
+        }
+
+        // one read batch, and every response is written
+        server.writeInbound(frames);
+        for (int i = 0; i < REQUESTS; i++) {
+            Assert.assertTrue(client.writeInbound((ByteBuf) server.readOutbound()));
+            MioMessage response = client.readInbound();
+            Assert.assertEquals("flush-" + i, new String((byte[]) response.getData()));
+        }
+
+        Assert.assertNull(server.readOutbound());
+        server.finishAndReleaseAll();
+        client.finishAndReleaseAll();
+        serverHandler.shutdown();
+        return flushes.get();
+    }
+
+    /**
+     * The codec wraps the inet addresses of the channel
+     */
+    private static EmbeddedChannel newInetChannel() {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+        return new EmbeddedChannel() {
+            @Override
+            public SocketAddress localAddress() {
+                return address;
+            }
+
+            @Override
+            public SocketAddress remoteAddress() {
+                return address;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,91 @@
+package io.mio.core.transport.netty;
+
+import io.mio.core.MioFuture;
+import io.mio.core.MioMessage;
+import io.mio.core.MioProcessor;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.MioClient;
+import io.mio.core.transport.MioServer;
+import io.mio.core.transport.MioTransport;
+import io.mio.core.transport.ServerConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class NettyMioClientMultiplexTest {
+
+    private static final int PORT = 19874;
+
+    @Test
+    public void testBurstSharesConnections() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT);
+        Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+        MioServer server = MioTransport.createServer(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                connections.add(request.getRemoteAddress());
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        });
+
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setMultiplex(true);
+        clientConfig.setMultiplexConnections(2);
+        MioClient client = MioTransport.createClient(clientConfig);
+        try {
+            List<MioFuture<MioMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                MioMessage request = new MioMessage(("multiplex-" + i).getBytes(), null);
+                request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+                futures.add(client.submit(request));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                MioMessage response = futures.get(i).get(5000);
+                Assert.assertEquals(MioMessage.OK, response.getCode());
+                Assert.assertEquals("multiplex-" + i, new String((byte[]) response.getData()));
+            }
+
+            // the burst never opens a connection for each request
+            Assert.assertTrue("connections=" + connections.size(), connections.size() <= 2);
+        } finally {
+            client.destroy();
+            server.destroy();
+        }
+    }
+
+    @Test
+    public void testSubmitAllWithoutRemoteAddress() throws Throwable {
+        for (boolean multiplex : new boolean[]{true, false}) {
+            ClientConfig clientConfig = new ClientConfig();
+            clientConfig.setMultiplex(multiplex);
+            MioClient client = MioTransport.createClient(clientConfig);
+            try {
+                MioMessage request = new MioMessage("valid".getBytes(), null);
+                request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+                client.submitAll(Arrays.asList(request, new MioMessage("invalid".getBytes(), null)));
+                Assert.fail("submitted the message without remote address");
+            } catch (IllegalArgumentException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("index=1"));
+            } finally {
+                client.destroy();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package io.mio.core.transport.netty;
+
+import io.mio.core.MioFuture;
+import io.mio.core.MioMessage;
+import io.mio.core.MioProcessor;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.MioClient;
+import io.mio.core.transport.MioServer;
+import io.mio.core.transport.MioTransport;
+import io.mio.core.transport.ServerConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class NettyMioServerAffinityTest {
+
+    private static final int PORT = 19872;
+
+    @Test
+    public void testProcessOnStickyExecutor() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT);
+        serverConfig.setBizAffinity(true);
+        Set<String> threadNames = ConcurrentHashMap.newKeySet();
+        MioServer server = MioTransport.createServer(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                threadNames.add(Thread.currentThread().getName());
+                if (new String((byte[]) request.getData()).startsWith("block")) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        });
+
+        MioClient client = MioTransport.createClient(new ClientConfig());
+        MioClient blockingClient = MioTransport.createClient(new ClientConfig());
+        try {
+            for (int i = 0; i < 10; i++) {
+                MioMessage request = new MioMessage(("affinity-" + i).getBytes(), null);
+                request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+                MioMessage response = client.submit(request).get(3000);
+                Assert.assertEquals(MioMessage.OK, response.getCode());
+            }
+
+            // the requests of a channel stay on one biz thread, never on the IO thread
+            Assert.assertEquals(1, threadNames.size());
+            String threadName = threadNames.iterator().next();
+            Assert.assertTrue(threadName, threadName.startsWith("server-"));
+
+            // the blocking biz of another channel does not stall the IO threads
+            MioMessage blockingRequest = new MioMessage("block".getBytes(), null);
+            blockingRequest.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+            MioFuture<MioMessage> blockingFuture = blockingClient.submit(blockingRequest);
+            long startMillis = System.currentTimeMillis();
+            MioMessage request = new MioMessage("affinity".getBytes(), null);
+            request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+            Assert.assertEquals(MioMessage.OK, client.submit(request).get(3000).getCode());
+            long elapsedMillis = System.currentTimeMillis() - startMillis;
+            Assert.assertTrue("elapsed=" + elapsedMillis + "ms", elapsedMillis < 1000);
+            Assert.assertEquals(MioMessage.OK, blockingFuture.get(3000).getCode());
+        } finally {
+            blockingClient.destroy();
+            client.destroy();
+            server.destroy();
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package io.mio.core.transport.netty;
+
+import io.mio.core.MioFuture;
+import io.mio.core.MioMessage;
+import io.mio.core.MioProcessor;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.MioClient;
+import io.mio.core.transport.MioServer;
+import io.mio.core.transport.MioTransport;
+import io.mio.core.transport.ServerConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class NettyMioServerDrainTest {
+
+    private static final int PORT = 19871;
+
+    @Test
+    public void testDrainAfterProcessorThrows() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT);
+        serverConfig.setShutdownTimeoutMillis(5000);
+        MioServer server = MioTransport.createServer(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                if (new String((byte[]) request.getData()).startsWith("fail")) {
+                    throw new IllegalStateException("processor failure");
+                }
+
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        });
+
+        MioClient client = MioTransport.createClient(new ClientConfig());
+        try {
+            List<MioFuture<MioMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                MioMessage request = new MioMessage(((i % 2 == 0 ? "fail-" : "ok-") + i).getBytes(), null);
+                request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT));
+                futures.add(client.submit(request));
+            }
+
+            int failed = 0;
+            for (MioFuture<MioMessage> future : futures) {
+                MioMessage response = future.get(3000);
+                if (response.getCode() != MioMessage.OK) {
+                    Assert.assertNotNull(response.getError());
+                    failed++;
+                }
+            }
+            Assert.assertEquals(10, failed);
+        } finally {
+            client.destroy();
+        }
+
+        // nothing is in flight, so the drain does not wait for the shutdown timeout
+        long startMillis = System.currentTimeMillis();
+        server.destroy();
+        long destroyMillis = System.currentTimeMillis() - startMillis;
+        Assert.assertTrue("destroy=" + destroyMillis + "ms", destroyMillis < 2000);
+    }
+
+    @Test
+    public void testDrainFlushesInflightResponses() throws Throwable {
+        int requests = 10;
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT + 1);
+        serverConfig.setShutdownTimeoutMillis(5000);
+        CountDownLatch received = new CountDownLatch(requests);
+        MioServer server = MioTransport.createServer(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                received.countDown();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        });
+
+        MioClient client = MioTransport.createClient(new ClientConfig());
+        try {
+            List<MioFuture<MioMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                MioMessage request = new MioMessage(("drain-" + i).getBytes(), null);
+                request.setRemoteAddress(new InetSocketAddress("127.0.0.1", PORT + 1));
+                futures.add(client.submit(request));
+            }
+
+            // destroy while all the requests are in the processor
+            Assert.assertTrue(received.await(3, TimeUnit.SECONDS));
+            server.destroy();
+
+            for (int i = 0; i < requests; i++) {
+                MioMessage response = futures.get(i).get(3000);
+                Assert.assertEquals(MioMessage.OK, response.getCode());
+                Assert.assertEquals("drain-" + i, new String((byte[]) response.getData()));
+            }
+        } finally {
+            client.destroy();
+        }
+    }
+
+}
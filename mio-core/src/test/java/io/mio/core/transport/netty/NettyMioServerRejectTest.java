@@ -0,0 +1,149 @@
+package io.mio.core.transport.netty;
+
+import io.mio.core.MioConstants;
+import io.mio.core.MioFuture;
+import io.mio.core.MioMessage;
+import io.mio.core.MioProcessor;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.MioClient;
+import io.mio.core.transport.MioServer;
+import io.mio.core.transport.MioTransport;
+import io.mio.core.transport.ServerConfig;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class NettyMioServerRejectTest {
+
+    private static final int PORT = 19875;
+
+    @Test
+    public void testAdaptiveLimitRejected() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT);
+        serverConfig.setAdaptiveLimit(true);
+        serverConfig.setAdaptiveMinLimit(1);
+        serverConfig.setAdaptiveMaxLimit(1);
+        assertRejected(serverConfig, 1, null, "Adaptive limit rejected: 1");
+    }
+
+    @Test
+    public void testVirtualThreadConcurrencyRejected() throws Throwable {
+        Assume.assumeTrue("virtual thread is not supported", VirtualThreadExecutor.isSupported());
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT + 1);
+        serverConfig.setBizVirtualThread(true);
+        serverConfig.setBizVirtualMaxConcurrency(1);
+        assertRejected(serverConfig, 1, null, "the max concurrency is reached: 1");
+    }
+
+    @Test
+    public void testBulkheadFullRejected() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT + 2);
+        serverConfig.getBizIsolations().put("io.mio.DemoService", 1);
+        Map<String, Object> attachments = new HashMap<>();
+        attachments.put(MioConstants.SERVICE_KEY, "io.mio.DemoService");
+        // the bulkhead of 1 thread and 1 queued
+        assertRejected(serverConfig, 2, attachments, RejectedExecutionException.class.getName());
+    }
+
+    @Test
+    public void testPriorityLaneRejected() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT + 3);
+        serverConfig.setBizPriorityLanes(2);
+        serverConfig.setBizCoreThreads(1);
+        serverConfig.setBizMaxThreads(1);
+        serverConfig.setBizQueueCapacity(0);
+        Map<String, Object> attachments = new HashMap<>();
+        attachments.put(MioConstants.PRIORITY_KEY, 0);
+        // the lane token is rejected by the biz thread pool of 1 thread and no queue
+        assertRejected(serverConfig, 1, attachments, RejectedExecutionException.class.getName());
+    }
+
+    @Test
+    public void testAffinityQueueFullRejected() throws Throwable {
+        ServerConfig serverConfig = new ServerConfig();
+        serverConfig.setPort(PORT + 4);
+        serverConfig.setBizAffinity(true);
+        serverConfig.setBizCoreThreads(1);
+        serverConfig.setBizQueueCapacity(1);
+        // the sticky executor of 1 thread and 1 queued
+        assertRejected(serverConfig, 2, null, RejectedExecutionException.class.getName());
+    }
+
+    /**
+     * The blocked requests hold the capacity of the server, then the client sees the rejection of the next one
+     *
+     * @param serverConfig {@link ServerConfig}
+     * @param blocked      the number of requests to hold the capacity
+     * @param attachments  the attachments of every request, nullable
+     * @param error        the text in the error of rejection
+     */
+    private static void assertRejected(ServerConfig serverConfig, int blocked,
+                                       Map<String, Object> attachments, String error) throws Throwable {
+        CountDownLatch release = new CountDownLatch(1);
+        MioServer server = MioTransport.createServer(serverConfig, new MioProcessor<MioMessage>() {
+            @Override
+            public void onProcessor(Consumer<MioMessage> context, MioMessage request) {
+                if (new String((byte[]) request.getData()).startsWith("block")) {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                context.accept(new MioMessage(request.getData(), null));
+            }
+        });
+
+        // one multiplexed connection, so the requests arrive at the server in order
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setMultiplex(true);
+        clientConfig.setMultiplexConnections(1);
+        MioClient client = MioTransport.createClient(clientConfig);
+        try {
+            List<MioFuture<MioMessage>> blockedFutures = new ArrayList<>();
+            for (int i = 0; i < blocked; i++) {
+                blockedFutures.add(client.submit(newRequest("block-" + i, serverConfig.getPort(), attachments)));
+            }
+
+            MioMessage response = client.submit(newRequest("reject", serverConfig.getPort(), attachments)).get(3000);
+            Assert.assertEquals(MioMessage.THREAD_POOL_REJECTED, response.getCode());
+            Assert.assertNotNull(response.getError());
+            Assert.assertTrue(response.getError(), response.getError().contains(error));
+
+            release.countDown();
+            for (MioFuture<MioMessage> future : blockedFutures) {
+                Assert.assertEquals(MioMessage.OK, future.get(3000).getCode());
+            }
+        } finally {
+            release.countDown();
+            client.destroy();
+            server.destroy();
+        }
+    }
+
+    private static MioMessage newRequest(String data, int port, Map<String, Object> attachments) {
+        MioMessage request = new MioMessage(data.getBytes(), null);
+        if (attachments != null) {
+            request.getAttachments().putAll(attachments);
+        }
+
+        request.setRemoteAddress(new InetSocketAddress("127.0.0.1", port));
+        return request;
+    }
+
+}
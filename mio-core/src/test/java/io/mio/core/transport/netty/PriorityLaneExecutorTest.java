@@ -0,0 +1,151 @@
+package io.mio.core.transport.netty;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PriorityLaneExecutorTest {
+
+    private static final int SUBMITTERS = 4;
+    private static final int ROUNDS = 2000;
+    private static final int TASKS = 8;
+
+    @Test
+    public void testStrictRunsEveryAcceptedTask() throws Exception {
+        stress(null);
+    }
+
+    @Test
+    public void testWeightedRunsEveryAcceptedTask() throws Exception {
+        stress(new int[]{4, 2, 1});
+    }
+
+    /**
+     * The token of a low task takes a later high task, and the token of the high task is rejected after that
+     */
+    @Test
+    public void testTaskTakenBeforeRejectedTokenRunsTheOthers() {
+        List<Runnable> tokens = new ArrayList<>();
+        ExecutorService delegate = new AbstractExecutorService() {
+            @Override
+            public void execute(Runnable command) {
+                if (tokens.isEmpty()) {
+                    tokens.add(command);
+                    return;
+                }
+                // the pending token runs to the end, then the new token is rejected
+                tokens.remove(0).run();
+                throw new RejectedExecutionException("full");
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(long timeout, TimeUnit unit) {
+                return true;
+            }
+        };
+
+        PriorityLaneExecutor executor = new PriorityLaneExecutor(delegate, 2, null, -1);
+        AtomicInteger completed = new AtomicInteger(0);
+        executor.execute(completed::incrementAndGet, 1);
+        executor.execute(completed::incrementAndGet, 0);
+
+        Assert.assertEquals(2, completed.get());
+        Assert.assertEquals(0, executor.getLaneStats(0).getQueued().get());
+        Assert.assertEquals(0, executor.getLaneStats(1).getQueued().get());
+    }
+
+    /**
+     * The rounds of concurrent burst, every accepted task must run without the submitting of the next round
+     */
+    private void stress(int[] weights) throws Exception {
+        // the small delegate rejects a lot of tokens under the concurrent submitting
+        ThreadPoolExecutor delegate = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2));
+        PriorityLaneExecutor executor = new PriorityLaneExecutor(delegate, 3, weights, -1);
+        AtomicInteger accepted = new AtomicInteger(0);
+        AtomicInteger rejected = new AtomicInteger(0);
+        AtomicInteger completed = new AtomicInteger(0);
+        Runnable task = () -> {
+            long deadline = System.nanoTime() + 2000;
+            while (System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            completed.incrementAndGet();
+        };
+
+        ExecutorService submitters = Executors.newFixedThreadPool(SUBMITTERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CyclicBarrier barrier = new CyclicBarrier(SUBMITTERS);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < SUBMITTERS; i++) {
+                    futures.add(submitters.submit(() -> {
+                        barrier.await();
+                        for (int j = 0; j < TASKS; j++) {
+                            try {
+                                executor.execute(task, j % 3);
+                                accepted.incrementAndGet();
+                            } catch (RejectedExecutionException e) {
+                                rejected.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(10, TimeUnit.SECONDS);
+                }
+
+                long deadline = System.currentTimeMillis() + 2000;
+                while (completed.get() < accepted.get() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                Assert.assertEquals("round " + round, accepted.get(), completed.get());
+            }
+        } finally {
+            submitters.shutdownNow();
+        }
+
+        Assert.assertEquals(SUBMITTERS * TASKS * ROUNDS, accepted.get() + rejected.get());
+        Assert.assertTrue("rejected=" + rejected.get(), rejected.get() > 0);
+        for (int i = 0; i < executor.getLaneCount(); i++) {
+            Assert.assertEquals(0, executor.getLaneStats(i).getQueued().get());
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
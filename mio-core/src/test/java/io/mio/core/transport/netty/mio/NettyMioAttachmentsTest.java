@@ -0,0 +1,135 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import io.mio.core.MioException;
+import io.mio.core.MioMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class NettyMioAttachmentsTest {
+
+    @Test
+    public void testRoundTrip() {
+        Map<String, Object> attachments = new LinkedHashMap<>();
+        attachments.put(MioConstants.SERVICE_KEY, "io.mio.DemoService");
+        attachments.put(MioConstants.TIMEOUT_KEY, 3000);
+        attachments.put("custom-key", "中文值");
+        attachments.put("long", Long.MIN_VALUE);
+        attachments.put("int", -1);
+        attachments.put("boolean", true);
+        attachments.put("double", 0.5D);
+        attachments.put("bytes", new byte[]{1, 2, 3});
+        attachments.put("null", null);
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            NettyMioAttachments.encode(attachments, buffer);
+            Map<String, Object> decoded = new HashMap<>();
+            NettyMioAttachments.decode(buffer, decoded);
+
+            Assert.assertFalse(buffer.isReadable());
+            Assert.assertEquals(attachments.size(), decoded.size());
+            Assert.assertSame(MioConstants.SERVICE_KEY, findKey(decoded, MioConstants.SERVICE_KEY));
+            Assert.assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) decoded.remove("bytes"));
+            attachments.remove("bytes");
+            Assert.assertEquals(attachments, decoded);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            NettyMioAttachments.encode(new HashMap<>(), buffer);
+            Assert.assertFalse(buffer.isReadable());
+
+            Map<String, Object> decoded = new HashMap<>();
+            NettyMioAttachments.decode(buffer, decoded);
+            Assert.assertTrue(decoded.isEmpty());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testTruncated() {
+        Map<String, Object> attachments = new LinkedHashMap<>();
+        attachments.put("key", "value");
+        attachments.put("double", 0.5D);
+        attachments.put("bytes", new byte[16]);
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            NettyMioAttachments.encode(attachments, buffer);
+            for (int length = 1; length < buffer.readableBytes(); length++) {
+                assertIllegal(buffer.slice(0, length));
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testOversizedLength() {
+        // count=1, key length=Integer.MAX_VALUE
+        assertIllegal(Unpooled.wrappedBuffer(new byte[]{1, (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F}));
+        // count=1, key index=0, bytes value with length=Integer.MAX_VALUE
+        assertIllegal(Unpooled.wrappedBuffer(new byte[]{1, 1, 6, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}));
+        // count=1, key index=0, string value with length=Integer.MAX_VALUE
+        assertIllegal(Unpooled.wrappedBuffer(new byte[]{1, 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07}));
+        // count=Integer.MAX_VALUE
+        assertIllegal(Unpooled.wrappedBuffer(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 0}));
+    }
+
+    @Test
+    public void testTruncatedStatus() {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            NettyMioAttachments.encodeStatus(MioMessage.SERVICE_ERROR, "error", buffer);
+            for (int length = 0; length < buffer.readableBytes(); length++) {
+                try {
+                    NettyMioAttachments.decodeStatus(buffer.slice(0, length), new MioMessage());
+                    Assert.fail("decoded the truncated status: " + length);
+                } catch (MioException e) {
+                    Assert.assertEquals(MioException.ILLEGAL_ATTACHMENT, e.getCode());
+                }
+            }
+
+            MioMessage message = new MioMessage();
+            NettyMioAttachments.decodeStatus(buffer, message);
+            Assert.assertFalse(buffer.isReadable());
+            Assert.assertEquals(MioMessage.SERVICE_ERROR, message.getCode());
+            Assert.assertEquals("error", message.getError());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static void assertIllegal(ByteBuf buffer) {
+        try {
+            NettyMioAttachments.decode(buffer, new HashMap<>());
+            Assert.fail("decoded the illegal attachments");
+        } catch (MioException e) {
+            Assert.assertEquals(MioException.ILLEGAL_ATTACHMENT, e.getCode());
+        }
+    }
+
+    private static String findKey(Map<String, Object> attachments, String key) {
+        for (String k : attachments.keySet()) {
+            if (k.equals(key)) {
+                return k;
+            }
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,139 @@
+package io.mio.core.transport.netty.mio;
+
+import io.mio.core.MioConstants;
+import io.mio.core.MioMessage;
+import io.mio.core.compress.Compress;
+import io.mio.core.extension.ExtensionLoader;
+import io.mio.core.serialize.Serialize;
+import io.mio.core.transport.ClientConfig;
+import io.mio.core.transport.ServerConfig;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class NettyMioInitializerTest {
+
+    @Test
+    public void testBroadcastToUnknownVersion() throws Exception {
+        ServerConfig serverConfig = new ServerConfig();
+        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
+        Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(serverConfig.getCompress());
+        NettyMioInitializer initializer = new NettyMioInitializer();
+
+        // the peer of newer, older, bad and unknown version
+        Byte[] peerVersions = {9, 2, -1, null};
+        List<EmbeddedChannel> channels = new ArrayList<>();
+        for (Byte peerVersion : peerVersions) {
+            EmbeddedChannel channel = new EmbeddedChannel();
+            initializer.server(serverConfig, serialize, compress, channel.pipeline());
+            channel.attr(NettyMioDecoder.PEER_VERSION_KEY).set(peerVersion);
+            channels.add(channel);
+        }
+
+        int count = initializer.broadcast(serverConfig, serialize, compress,
+                new ArrayList<Channel>(channels), new MioMessage("hello".getBytes(), null));
+        Assert.assertEquals(peerVersions.length, count);
+
+        for (EmbeddedChannel channel : channels) {
+            ByteBuf frame = channel.readOutbound();
+            Assert.assertNotNull(frame);
+            Assert.assertTrue(frame.isReadable());
+            frame.release();
+            Assert.assertFalse(channel.finish());
+        }
+    }
+
+    @Test
+    public void testResolveCompressByFrameId() throws Exception {
+        ServerConfig serverConfig = new ServerConfig();
+        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
+        Compress gzip = ExtensionLoader.getLoader(Compress.class).getExtension("gzip");
+        NettyMioInitializer initializer = new NettyMioInitializer();
+
+        EmbeddedChannel server = newInetChannel();
+        initializer.server(serverConfig, serialize, gzip, server.pipeline());
+
+        byte[] data = new byte[64 * 1024];
+        Arrays.fill(data, (byte) 'a');
+        for (String name : new String[]{"snappy", "lz4", "zstd"}) {
+            ClientConfig clientConfig = new ClientConfig();
+            clientConfig.setCompressMinLength(1);
+            Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(name);
+            EmbeddedChannel client = newInetChannel();
+            initializer.client(clientConfig, serialize, compress, client.pipeline());
+
+            Assert.assertTrue(client.writeOutbound(new MioMessage(data, null)));
+            ByteBuf frame = client.readOutbound();
+            Assert.assertTrue(server.writeInbound(frame));
+            MioMessage message = server.readInbound();
+            Assert.assertArrayEquals(name, data, (byte[]) message.getData());
+            Assert.assertFalse(client.finish());
+        }
+
+        Assert.assertFalse(server.finish());
+    }
+
+    @Test
+    public void testResponseStatus() throws Exception {
+        ServerConfig serverConfig = new ServerConfig();
+        ClientConfig clientConfig = new ClientConfig();
+        Serialize serialize = ExtensionLoader.getLoader(Serialize.class).getExtension(serverConfig.getSerialize());
+        Compress compress = ExtensionLoader.getLoader(Compress.class).getExtension(serverConfig.getCompress());
+        NettyMioInitializer initializer = new NettyMioInitializer();
+        EmbeddedChannel server = newInetChannel();
+        initializer.server(serverConfig, serialize, compress, server.pipeline());
+        EmbeddedChannel client = newInetChannel();
+        initializer.client(clientConfig, serialize, compress, client.pipeline());
+
+        MioMessage[] responses = {new MioMessage(MioMessage.THREAD_POOL_REJECTED, "Adaptive limit rejected: 1"),
+                new MioMessage(MioMessage.SERVICE_ERROR, null), new MioMessage(MioMessage.OK, "中文"),
+                new MioMessage("hello".getBytes(), null)};
+        for (MioMessage response : responses) {
+            response.getAttachments().put("key", "value");
+            Assert.assertTrue(server.writeOutbound(response));
+            Assert.assertTrue(client.writeInbound((ByteBuf) server.readOutbound()));
+            MioMessage message = client.readInbound();
+            Assert.assertEquals(response.getCode(), message.getCode());
+            Assert.assertEquals(response.getError(), message.getError());
+            Assert.assertEquals("value", message.getAttachments().get("key"));
+        }
+
+        // the peer of version 4 has no status
+        server.attr(NettyMioDecoder.PEER_VERSION_KEY).set(MioConstants.PROTOCOL_VERSION_4);
+        Assert.assertTrue(server.writeOutbound(responses[0]));
+        Assert.assertTrue(client.writeInbound((ByteBuf) server.readOutbound()));
+        MioMessage message = client.readInbound();
+        Assert.assertEquals(MioMessage.OK, message.getCode());
+        Assert.assertNull(message.getError());
+
+        Assert.assertFalse(server.finish());
+        Assert.assertFalse(client.finish());
+    }
+
+    /**
+     * The codec wraps the inet addresses of the channel
+     */
+    private static EmbeddedChannel newInetChannel() {
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+        return new EmbeddedChannel() {
+            @Override
+            public SocketAddress localAddress() {
+                return address;
+            }
+
+            @Override
+            public SocketAddress remoteAddress() {
+                return address;
+            }
+        };
+    }
+
+}